@@ -0,0 +1,112 @@
+package com.taobaodemo.benchmark;
+
+import com.taobaodemo.TaobaoApplication;
+import com.taobaodemo.order.entity.OrderMaster;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.function.Consumer;
+
+/**
+ * 基准测试用的应用上下文
+ * 以非Web方式启动应用，数据库为H2内存库（MySQL兼容模式，表结构由Hibernate按实体创建），
+ * 测试数据用 INSERT ... SELECT 批量生成。
+ * 结果用于比较改动前后的相对变化，不代表MySQL上的绝对耗时。
+ */
+public final class BenchmarkContext {
+    // 订单按批插入，避免千万级数据一次生成占用过多内存
+    private static final int ORDER_INSERT_BATCH = 1_000_000;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * 启动应用并准备数据（准备失败时关闭应用，避免残留线程使JMH子进程无法退出）
+     * @param name 内存库名称（每个基准使用独立的库）
+     * @param setup 准备数据
+     * @return 应用上下文
+     */
+    public static ConfigurableApplicationContext start(String name, Consumer<ConfigurableApplicationContext> setup) {
+        ConfigurableApplicationContext context = start(name);
+        try {
+            setup.accept(context);
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+        return context;
+    }
+
+    private static ConfigurableApplicationContext start(String name) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(TaobaoApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + name
+                                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        // 使用与生产相同的MySQL方言；H2报告的是自己的版本号，按MySQL 8处理
+                        "--spring.jpa.properties.jakarta.persistence.database-major-version=8",
+                        "--spring.jpa.properties.jakarta.persistence.database-minor-version=0",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.taobaodemo=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--analytics.snapshot-path=target/benchmark/" + name + ".snapshot");
+    }
+
+    /**
+     * 生成分类、店铺、商品和顾客
+     * 店铺i属于用户i，顾客的用户ID从 shops+1 开始；商品按店铺连续编号（店铺1为1..productsPerShop），
+     * 每10个商品有1个下架，库存足够下单基准反复使用
+     * @param jdbc JdbcTemplate
+     * @param shops 店铺数
+     * @param productsPerShop 每个店铺的商品数
+     * @param categories 分类数
+     * @param customers 顾客数
+     */
+    public static void seedCatalog(JdbcTemplate jdbc, int shops, int productsPerShop, int categories, int customers) {
+        jdbc.update("INSERT INTO category (category_id, name, sort_order) "
+                + "SELECT n, CONCAT('分类', n), n FROM SYSTEM_RANGE(1, ?) r(n)", categories);
+        jdbc.update("INSERT INTO user (user_id, username, password, user_type, is_deleted) "
+                + "SELECT n, CONCAT('shop', n), 'p', 2, FALSE FROM SYSTEM_RANGE(1, ?) r(n)", shops);
+        jdbc.update("INSERT INTO user (user_id, username, password, user_type, is_deleted) "
+                + "SELECT ? + n, CONCAT('customer', n), 'p', 3, FALSE FROM SYSTEM_RANGE(1, ?) r(n)", shops, customers);
+        jdbc.update("INSERT INTO shop (shop_id, shop_name, user_id, is_deleted) "
+                + "SELECT n, CONCAT('店铺', n), n, FALSE FROM SYSTEM_RANGE(1, ?) r(n)", shops);
+        jdbc.update("INSERT INTO product (product_id, shop_id, name, description, price, stock, image_url, is_on_sale, category_id) "
+                        + "SELECT n, (n - 1) / ? + 1, CONCAT('商品', n), CONCAT('商品', n, '的描述'), 10 + MOD(n, 90), "
+                        + "1000000000, NULL, MOD(n, 10) <> 0, MOD(n, ?) + 1 FROM SYSTEM_RANGE(1, ?) r(n)",
+                productsPerShop, categories, shops * productsPerShop);
+    }
+
+    /**
+     * 生成订单（四分之三已完成，其余待发货），商品和顾客均匀分布
+     * @param jdbc JdbcTemplate
+     * @param rows 订单数
+     * @param shops 店铺数（与 seedCatalog 一致）
+     * @param productsPerShop 每个店铺的商品数（与 seedCatalog 一致）
+     * @param customers 顾客数（与 seedCatalog 一致）
+     */
+    public static void seedOrders(JdbcTemplate jdbc, int rows, int shops, int productsPerShop, int customers) {
+        int products = shops * productsPerShop;
+        for (int start = 1; start <= rows; start += ORDER_INSERT_BATCH) {
+            int end = Math.min(rows, start + ORDER_INSERT_BATCH - 1);
+            jdbc.update("INSERT INTO ordermaster (order_id, customer_id, shop_id, order_date, total_amount, status, "
+                            + "receiver_name, receiver_phone, receiver_address, product_id, quantity, price_at_purchase) "
+                            + "SELECT n, ? + MOD(n, ?) + 1, MOD(n * 7919, ?) / ? + 1, DATEADD('MINUTE', -n, CURRENT_TIMESTAMP), "
+                            + "20, CASE MOD(n, 4) WHEN 0 THEN ? ELSE ? END, '收货人', '13800000000', '地址', "
+                            + "MOD(n * 7919, ?) + 1, MOD(n, 3) + 1, 10 FROM SYSTEM_RANGE(?, ?) r(n)",
+                    shops, customers, products, productsPerShop,
+                    OrderMaster.STATUS_PENDING_SHIPMENT, OrderMaster.STATUS_COMPLETED,
+                    products, start, end);
+        }
+    }
+}
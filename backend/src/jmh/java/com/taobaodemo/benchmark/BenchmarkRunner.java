@@ -0,0 +1,98 @@
+package com.taobaodemo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基准测试入口
+ * 运行：mvn -Pbenchmark verify [-Dbenchmark.args="ReportService -p orderRows=10000"]（参数同JMH命令行）
+ * 结果以JSON写入 benchmark.result（默认 target/jmh-result.json），可保存为基线；
+ * 指定 -Dbenchmark.baseline=基线文件 时逐项与基线比较，平均耗时类指标变慢（吞吐量类变低）
+ * 超过 benchmark.threshold 百分比（默认10）时以非0状态退出。
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        String result = System.getProperty("benchmark.result", "target/jmh-result.json");
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+
+        String baseline = System.getProperty("benchmark.baseline", "");
+        if (!baseline.isBlank()) {
+            double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "10"));
+            if (!compare(Paths.get(baseline), Paths.get(result), threshold)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * 与基线逐项比较并打印变化
+     * @param baselinePath 基线结果文件
+     * @param resultPath 本次结果文件
+     * @param threshold 允许的退化百分比
+     * @return 没有超过阈值的退化时返回true
+     */
+    private static boolean compare(Path baselinePath, Path resultPath, double threshold) throws IOException {
+        Map<String, JsonNode> baseline = readResults(baselinePath);
+        Map<String, JsonNode> current = readResults(resultPath);
+        boolean passed = true;
+        System.out.printf("%n%-90s %14s %14s %9s%n", "基准", "基线", "本次", "变化");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            double score = now.path("primaryMetric").path("score").asDouble();
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s  %s%n", entry.getKey(), "-", score, "新增", unit);
+                continue;
+            }
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double change = baseScore != 0 ? (score - baseScore) / baseScore * 100 : 0;
+            // 吞吐量越高越好，其余模式（平均耗时、单次耗时等）越低越好
+            double regression = "thrpt".equals(now.path("mode").asText()) ? -change : change;
+            boolean regressed = regression > threshold;
+            passed &= !regressed;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), baseScore, score, change, unit,
+                    regressed ? "  <-- 退化" : "");
+        }
+        return passed;
+    }
+
+    // 基准名称加参数作为比较的键
+    private static Map<String, JsonNode> readResults(Path path) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(path.toFile())) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            results.put(node.path("benchmark").asText() + (params.isEmpty() ? "" : " " + params), node);
+        }
+        return results;
+    }
+}
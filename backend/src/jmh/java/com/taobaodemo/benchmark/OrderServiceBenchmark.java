@@ -0,0 +1,55 @@
+package com.taobaodemo.benchmark;
+
+import com.taobaodemo.order.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单基准
+ * 每次调用在一个事务中完成加载商品、批量预占库存和批量插入订单，购物车商品来自同一店铺
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+    private static final int SHOPS = 10;
+    private static final int PRODUCTS_PER_SHOP = 100;
+    private static final int CUSTOMERS = 100;
+
+    @Param({"1", "5"})
+    public int cartSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private Map<Integer, Integer> cartItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("order" + cartSize, app ->
+                BenchmarkContext.seedCatalog(app.getBean(JdbcTemplate.class), SHOPS, PRODUCTS_PER_SHOP, 10, CUSTOMERS));
+        orderService = context.getBean(OrderService.class);
+        // 店铺1的在售商品（商品10为下架商品）
+        cartItems = new HashMap<>();
+        for (int productId = 1; productId <= cartSize; productId++) {
+            cartItems.put(productId, 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Integer createOrderFromCart() {
+        return orderService.createOrderFromCart(SHOPS + 1, cartItems, "收货人", "13800000000", "地址");
+    }
+}
@@ -0,0 +1,91 @@
+package com.taobaodemo.benchmark;
+
+import com.taobaodemo.common.dto.CursorPage;
+import com.taobaodemo.product.dto.ProductBatchItem;
+import com.taobaodemo.product.dto.ProductStats;
+import com.taobaodemo.product.entity.Product;
+import com.taobaodemo.product.service.ProductSearchIndex;
+import com.taobaodemo.product.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品列表和筛选基准（1万件商品）
+ * 覆盖首页游标分页、分类筛选、关键词搜索（内存倒排索引）以及购物车/列表卡片使用的批量接口
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+    private static final int SHOPS = 100;
+    private static final int PRODUCTS_PER_SHOP = 100;
+    private static final int CATEGORIES = 10;
+    private static final int PAGE_SIZE = 20;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private String secondPageCursor;
+    private List<Integer> cardProductIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("product", app -> {
+            BenchmarkContext.seedCatalog(app.getBean(JdbcTemplate.class), SHOPS, PRODUCTS_PER_SHOP, CATEGORIES, 10);
+            app.getBean(ProductSearchIndex.class).rebuild();
+        });
+        productService = context.getBean(ProductService.class);
+        secondPageCursor = productService.getAllOnSaleProducts(null, PAGE_SIZE).getNextCursor();
+        cardProductIds = new ArrayList<>();
+        for (int i = 1; i <= PAGE_SIZE; i++) {
+            cardProductIds.add(i * 37);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CursorPage<Product> listFirstPage() {
+        return productService.getAllOnSaleProducts(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Product> listSecondPage() {
+        return productService.getAllOnSaleProducts(secondPageCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Product> listByCategory() {
+        return productService.getOnSaleProductsByCategory(3, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Product> searchByKeyword() {
+        return productService.searchOnSaleProducts("商品12", null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Product> searchByKeywordInCategory() {
+        return productService.searchOnSaleProductsByCategory(3, "商品12", null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ProductStats> cardStats() {
+        return productService.getProductStats(cardProductIds);
+    }
+
+    @Benchmark
+    public List<ProductBatchItem> batchFetch() {
+        return productService.getProductsBatch(cardProductIds);
+    }
+}
@@ -0,0 +1,72 @@
+package com.taobaodemo.benchmark;
+
+import com.taobaodemo.operator.service.ReportService;
+import com.taobaodemo.order.service.SalesAggregateService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运营报表基准
+ * 热销商品、热门店铺读取销量汇总表，耗时只与商品数、店铺数有关；
+ * 汇总表重建全量扫描订单表，耗时随订单数增长。
+ * 千万级订单：-p orderRows=10000000（需要调大 -Xmx）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReportServiceBenchmark {
+    private static final int SHOPS = 50;
+    private static final int PRODUCTS_PER_SHOP = 40;
+    private static final int CATEGORIES = 10;
+    private static final int CUSTOMERS = 2000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int orderRows;
+
+    private ConfigurableApplicationContext context;
+    private ReportService reportService;
+    private SalesAggregateService salesAggregateService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("report" + orderRows, app -> {
+            JdbcTemplate jdbc = app.getBean(JdbcTemplate.class);
+            BenchmarkContext.seedCatalog(jdbc, SHOPS, PRODUCTS_PER_SHOP, CATEGORIES, CUSTOMERS);
+            BenchmarkContext.seedOrders(jdbc, orderRows, SHOPS, PRODUCTS_PER_SHOP, CUSTOMERS);
+            app.getBean(SalesAggregateService.class).rebuild();
+        });
+        reportService = context.getBean(ReportService.class);
+        salesAggregateService = context.getBean(SalesAggregateService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Integer> topSellingProducts() {
+        return reportService.getTopSellingProducts(10);
+    }
+
+    @Benchmark
+    public Map<String, Integer> topShopsByOrderCount() {
+        return reportService.getTopShopsByOrderCount(10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void rebuildSalesAggregates() {
+        salesAggregateService.rebuild();
+    }
+}
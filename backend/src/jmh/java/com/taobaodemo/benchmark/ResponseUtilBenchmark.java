@@ -0,0 +1,71 @@
+package com.taobaodemo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taobaodemo.common.dto.CursorPage;
+import com.taobaodemo.common.util.ResponseUtil;
+import com.taobaodemo.product.entity.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统一响应构造和JSON序列化基准（不启动应用，ObjectMapper与Spring MVC默认配置一致）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseUtilBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    private ObjectMapper objectMapper;
+    private List<Product> products;
+    private CursorPage<Product> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        products = new ArrayList<>();
+        for (int i = 1; i <= PAGE_SIZE; i++) {
+            Product product = new Product();
+            product.setProductId(i);
+            product.setShopId(1);
+            product.setName("商品" + i);
+            product.setDescription("商品" + i + "的描述");
+            product.setPrice(new BigDecimal("99.90"));
+            product.setStock(100);
+            product.setImageUrl("/uploads/images/products/ab/cd/" + "0".repeat(64) + ".jpg");
+            product.setCategoryId(1);
+            products.add(product);
+        }
+        page = new CursorPage<>(products, String.valueOf(PAGE_SIZE), true);
+    }
+
+    @Benchmark
+    public Map<String, Object> successEnvelope() {
+        return ResponseUtil.success(products);
+    }
+
+    @Benchmark
+    public byte[] successProductListJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ResponseUtil.success(products));
+    }
+
+    @Benchmark
+    public byte[] successCursorPageJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ResponseUtil.success(page));
+    }
+
+    @Benchmark
+    public byte[] errorJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ResponseUtil.error("商品库存不足"));
+    }
+}
@@ -2,8 +2,10 @@ package com.taobaodemo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class TaobaoApplication {
     public static void main(String[] args) {
         SpringApplication.run(TaobaoApplication.class, args);
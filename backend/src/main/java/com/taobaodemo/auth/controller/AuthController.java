@@ -3,9 +3,11 @@ package com.taobaodemo.auth.controller;
 import com.taobaodemo.auth.dto.LoginRequest;
 import com.taobaodemo.auth.dto.RegisterRequest;
 import com.taobaodemo.auth.entity.User;
+import com.taobaodemo.auth.service.AuthTokenService;
 import com.taobaodemo.auth.service.UserService;
 import com.taobaodemo.common.util.ResponseUtil;
 import com.taobaodemo.common.util.SessionUtil;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,14 +26,18 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AuthTokenService authTokenService;
+
     /**
      * 用户登录
      * @param request 登录请求（用户名和密码）
      * @param session HTTP会话
+     * @param response HTTP响应（令牌模式下写入登录令牌）
      * @return 登录成功返回用户信息，失败返回错误信息
      */
     @PostMapping("/login")
-    public Object login(@Valid @RequestBody LoginRequest request, HttpSession session) {
+    public Object login(@Valid @RequestBody LoginRequest request, HttpSession session, HttpServletResponse response) {
         String username = request.getUsername();
         String password = request.getPassword();
         
@@ -43,6 +49,9 @@ public class AuthController {
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             session.setAttribute("currentUser", user);
+            if (authTokenService.isEnabled()) {
+                authTokenService.issue(user, response);
+            }
             return ResponseUtil.success(user);
         } else {
             return ResponseUtil.error("密码错误");
@@ -77,11 +86,15 @@ public class AuthController {
     /**
      * 用户登出
      * @param session HTTP会话
+     * @param response HTTP响应（令牌模式下清除登录令牌）
      * @return 登出成功信息
      */
     @PostMapping("/logout")
-    public Object logout(HttpSession session) {
+    public Object logout(HttpSession session, HttpServletResponse response) {
         session.invalidate();
+        if (authTokenService.isEnabled()) {
+            authTokenService.clear(response);
+        }
         return ResponseUtil.success(null, "登出成功");
     }
 
@@ -129,10 +142,11 @@ public class AuthController {
      * 更新用户信息（用户名）
      * @param request 更新请求（用户名）
      * @param session HTTP会话
+     * @param response HTTP响应（令牌模式下重新签发令牌）
      * @return 更新结果
      */
     @PutMapping("/profile")
-    public Object updateProfile(@RequestBody Map<String, String> request, HttpSession session) {
+    public Object updateProfile(@RequestBody Map<String, String> request, HttpSession session, HttpServletResponse response) {
         User user = SessionUtil.getCurrentUser(session);
         if (user == null) {
             return ResponseUtil.notLoggedIn();
@@ -150,6 +164,9 @@ public class AuthController {
         if (userService.updateUsername(user.getUserId(), newUsername)) {
             user.setUsername(newUsername);
             session.setAttribute("currentUser", user);
+            if (authTokenService.isEnabled()) {
+                authTokenService.issue(user, response);
+            }
             return ResponseUtil.success(user, "用户名修改成功");
         } else {
             return ResponseUtil.error("用户名修改失败");
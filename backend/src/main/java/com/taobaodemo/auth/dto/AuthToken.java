@@ -0,0 +1,19 @@
+package com.taobaodemo.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 登录令牌中携带的用户身份
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthToken {
+    private Integer userId;   // 用户ID
+    private Integer userType; // 用户类型
+    private Integer shopId;   // 店铺ID（仅店铺用户且已开店时有值）
+    private String username;  // 用户名（用于展示）
+    private long expiresAt;   // 过期时间（秒级时间戳）
+}
@@ -30,6 +30,10 @@ public class User {
     @Column(name = "is_deleted", nullable = false)
     private Boolean isDeleted = false; // 是否已删除（软删除标记）
 
+    // 非持久化字段：店铺用户的店铺ID，登录时解析
+    @Transient
+    private Integer shopId;
+
     // 用户类型常量
     public static final int TYPE_OPERATOR = 1;
     public static final int TYPE_SHOP = 2;
@@ -0,0 +1,62 @@
+package com.taobaodemo.auth.filter;
+
+import com.taobaodemo.auth.dto.AuthToken;
+import com.taobaodemo.auth.entity.User;
+import com.taobaodemo.auth.service.AuthTokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 令牌认证过滤器（auth.mode=token 时生效）
+ * 校验请求携带的签名令牌，并把请求的会话替换为只在本次请求内存在的 {@link TokenSession}，
+ * 其中的 currentUser 由令牌内容构造，不创建Tomcat会话，也不查询数据库。
+ */
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+    @Autowired
+    private AuthTokenService authTokenService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !authTokenService.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        TokenSession session = new TokenSession(request.getServletContext());
+        AuthToken token = authTokenService.resolve(request);
+        if (token != null) {
+            session.setAttribute("currentUser", toUser(token));
+        }
+        chain.doFilter(new HttpServletRequestWrapper(request) {
+            @Override
+            public HttpSession getSession(boolean create) {
+                return session;
+            }
+
+            @Override
+            public HttpSession getSession() {
+                return session;
+            }
+        }, response);
+    }
+
+    private User toUser(AuthToken token) {
+        User user = new User();
+        user.setUserId(token.getUserId());
+        user.setUserType(token.getUserType());
+        user.setUsername(token.getUsername());
+        user.setShopId(token.getShopId());
+        return user;
+    }
+}
@@ -0,0 +1,88 @@
+package com.taobaodemo.auth.filter;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 令牌模式下的会话视图
+ * 只在当前请求内有效，由令牌中的身份填充，不在服务端保存任何状态，
+ * 使 SessionUtil 和各控制器的 HttpSession 参数无需修改即可使用。
+ */
+public class TokenSession implements HttpSession {
+    private final ServletContext servletContext;
+    private final long creationTime = System.currentTimeMillis();
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    public TokenSession(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public String getId() {
+        return "token";
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        return creationTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        // 有效期由令牌决定
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return 0;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public void invalidate() {
+        attributes.clear();
+    }
+
+    @Override
+    public boolean isNew() {
+        return false;
+    }
+}
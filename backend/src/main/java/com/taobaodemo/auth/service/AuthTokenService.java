@@ -0,0 +1,165 @@
+package com.taobaodemo.auth.service;
+
+import com.taobaodemo.auth.dto.AuthToken;
+import com.taobaodemo.auth.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * 登录令牌服务（auth.mode=token 时启用）
+ * 令牌格式为 base64url(内容).base64url(HMAC-SHA256签名)，内容为"用户ID|用户类型|店铺ID|过期时间|用户名"。
+ * 校验只需重新计算签名，不查询数据库也不依赖服务端会话，各节点配置相同密钥即可识别同一用户。
+ * 登录状态不再限制扩容，但热门商品内存库存和订单流式统计仍是单节点的，多节点限制见 application.yml 中 auth 配置的说明。
+ * 令牌在过期前无法单独作废，有效期不宜过长。
+ */
+@Service
+public class AuthTokenService {
+    public static final String MODE_TOKEN = "token";
+    public static final String COOKIE_NAME = "AUTH_TOKEN";
+    public static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    @Value("${auth.mode:session}")
+    private String mode;
+
+    @Value("${auth.token.secret:}")
+    private String secret;
+
+    @Value("${auth.token.ttl-minutes:120}")
+    private long ttlMinutes;
+
+    private SecretKeySpec key;
+
+    /**
+     * 令牌模式下校验密钥配置（各节点必须使用相同密钥，不能随机生成）
+     */
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("auth.token.secret 至少需要" + MIN_SECRET_BYTES + "字节");
+        }
+        key = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * 是否启用令牌认证
+     */
+    public boolean isEnabled() {
+        return MODE_TOKEN.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 为登录用户签发令牌（店铺ID取自登录时解析的user.shopId），写入HttpOnly Cookie，并通过响应头返回给非浏览器客户端
+     * @param user 登录用户
+     * @param response HTTP响应
+     */
+    public void issue(User user, HttpServletResponse response) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlMinutes * 60;
+        String token = sign(new AuthToken(user.getUserId(), user.getUserType(), user.getShopId(), user.getUsername(), expiresAt));
+
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, token)
+                .httpOnly(true)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(ttlMinutes * 60)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        response.setHeader(HttpHeaders.AUTHORIZATION, BEARER_PREFIX + token);
+    }
+
+    /**
+     * 登出时清除令牌Cookie
+     * @param response HTTP响应
+     */
+    public void clear(HttpServletResponse response) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, "").httpOnly(true).sameSite("Lax").path("/").maxAge(0).build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    /**
+     * 从请求中读取并校验令牌（优先Authorization头，其次Cookie）
+     * @param request HTTP请求
+     * @return 令牌有效返回其中的身份，否则返回null
+     */
+    public AuthToken resolve(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            return verify(header.substring(BEARER_PREFIX.length()));
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return verify(cookie.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    private String sign(AuthToken token) {
+        String payload = token.getUserId() + "|" + token.getUserType() + "|"
+                + (token.getShopId() != null ? token.getShopId() : "") + "|"
+                + token.getExpiresAt() + "|" + token.getUsername();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String encoded = encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encoded + "." + encoder.encodeToString(hmac(encoded));
+    }
+
+    /**
+     * 校验签名和有效期
+     * @param token 令牌
+     * @return 有效返回令牌中的身份，签名错误、格式错误或已过期返回null
+     */
+    public AuthToken verify(String token) {
+        if (token == null || key == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        String encoded = token.substring(0, dot);
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, hmac(encoded))) {
+                return null;
+            }
+            String[] parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split("\\|", 5);
+            AuthToken parsed = new AuthToken(Integer.valueOf(parts[0]), Integer.valueOf(parts[1]),
+                    parts[2].isEmpty() ? null : Integer.valueOf(parts[2]), parts[4], Long.parseLong(parts[3]));
+            return parsed.getExpiresAt() > System.currentTimeMillis() / 1000 ? parsed : null;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private byte[] hmac(String data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
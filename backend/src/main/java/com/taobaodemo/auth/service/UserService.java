@@ -24,6 +24,7 @@ public class UserService {
 
     /**
      * 用户登录验证（只验证未删除的用户）
+     * 店铺用户同时解析店铺ID，保存在登录用户中供后续请求直接使用
      * @param username 用户名
      * @param password 密码
      * @return 登录成功返回用户信息，失败返回空
@@ -31,6 +32,10 @@ public class UserService {
     public Optional<User> login(String username, String password) {
         User user = userRepository.findByUsernameAndIsDeletedFalse(username).orElse(null);
         if (user != null && user.getPassword().equals(password)) {
+            if (user.isShopUser()) {
+                shopRepository.findByUserIdAndIsDeletedFalse(user.getUserId())
+                        .ifPresent(shop -> user.setShopId(shop.getShopId()));
+            }
             return Optional.of(user);
         }
         return Optional.empty();
@@ -0,0 +1,20 @@
+package com.taobaodemo.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * nextCursor 为下一页的游标（原样传回即可），没有更多数据时为null
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;      // 当前页数据
+    private String nextCursor;  // 下一页游标
+    private boolean hasMore;    // 是否还有下一页
+}
@@ -0,0 +1,79 @@
+package com.taobaodemo.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 业务指标
+ * orders.created：创建的订单数（事务提交后计入）
+ * checkout.rejected：被拒绝的下单请求数（库存不足、秒杀排队已满）
+ * 标签 channel 区分普通下单（cart）和秒杀（flash_sale）
+ * inventory.shortfall：热门商品回写时数据库库存不足以扣减的差额（件数，标签 product）
+ */
+@Component
+public class BusinessMetrics {
+    public static final String CHANNEL_CART = "cart";
+    public static final String CHANNEL_FLASH_SALE = "flash_sale";
+
+    public static final String REASON_OUT_OF_STOCK = "out_of_stock";
+    public static final String REASON_QUEUE_FULL = "queue_full";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 记录创建的订单（在所在事务提交后计入，回滚的订单不计入）
+     * @param channel 下单渠道
+     * @param count 订单数
+     */
+    public void recordOrdersCreated(String channel, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter counter = Counter.builder("orders.created")
+                .description("创建的订单数")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.increment(count);
+                }
+            });
+        } else {
+            counter.increment(count);
+        }
+    }
+
+    /**
+     * 记录被拒绝的下单请求
+     * @param channel 下单渠道
+     * @param reason 拒绝原因
+     */
+    public void recordCheckoutRejected(String channel, String reason) {
+        Counter.builder("checkout.rejected")
+                .description("被拒绝的下单请求数")
+                .tag("channel", channel)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录热门商品回写库存时的缺口（数据库库存不足，已清零，差额需要人工处理）
+     * @param productId 商品ID
+     * @param quantity 缺少的件数
+     */
+    public void recordStockShortfall(Integer productId, long quantity) {
+        Counter.builder("inventory.shortfall")
+                .description("热门商品回写时数据库库存不足的件数")
+                .tag("product", String.valueOf(productId))
+                .register(meterRegistry)
+                .increment(quantity);
+    }
+}
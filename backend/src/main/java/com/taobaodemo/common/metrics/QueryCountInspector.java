@@ -0,0 +1,34 @@
+package com.taobaodemo.common.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * SQL语句计数器
+ * Hibernate每准备一条JDBC语句（含原生SQL，批量写入按一条计）时加一，按线程累计，
+ * 由 {@link QueryCountInterceptor} 在请求开始时清零、结束时记录。
+ * 直接使用JdbcTemplate的语句不计入。
+ */
+public class QueryCountInspector implements StatementInspector {
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * 清零当前线程的计数
+     */
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * 获取当前线程清零以来的语句数
+     * @return 语句数
+     */
+    public static int get() {
+        return COUNT.get()[0];
+    }
+}
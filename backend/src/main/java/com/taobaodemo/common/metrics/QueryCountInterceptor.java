@@ -0,0 +1,42 @@
+package com.taobaodemo.common.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * 每个请求的SQL语句数统计
+ * 记录为 http.server.requests.queries，标签与 http.server.requests 一致（method、uri、status），
+ * 可按接口找出N+1查询等语句数异常的请求
+ */
+@Component
+public class QueryCountInterceptor implements HandlerInterceptor {
+    private static final double[] BUCKETS = {1, 2, 3, 5, 10, 20, 50, 100};
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCountInspector.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("http.server.requests.queries")
+                .description("每个请求执行的SQL语句数")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .tag("status", String.valueOf(response.getStatus()))
+                .serviceLevelObjectives(BUCKETS)
+                .register(meterRegistry)
+                .record(QueryCountInspector.get());
+    }
+}
@@ -0,0 +1,122 @@
+package com.taobaodemo.common.sketch;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Count-Min Sketch：用固定内存估计每个元素的出现次数
+ * 估计值只会偏大不会偏小；宽度为w、深度为d时，
+ * 估计误差不超过 (e / w) * 总计数 的概率至少为 1 - e^(-d)。
+ * 非线程安全，由调用方加锁。
+ */
+public class CountMinSketch {
+    private final int depth;
+    private final int width;
+    private final long[] counts;
+    private long total;
+
+    /**
+     * @param depth 哈希行数（决定误差概率）
+     * @param width 每行计数器个数（决定误差大小）
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("depth和width必须大于0");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counts = new long[depth * width];
+    }
+
+    /**
+     * 累加元素的计数
+     * @param item 元素
+     * @param count 增加的次数
+     */
+    public void add(long item, long count) {
+        long hash = SketchHash.hash(item);
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + column(hash, row)] += count;
+        }
+        total += count;
+    }
+
+    /**
+     * 估计元素的出现次数（各行计数的最小值）
+     * @param item 元素
+     * @return 估计次数（不小于真实值）
+     */
+    public long estimate(long item) {
+        long hash = SketchHash.hash(item);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts[row * width + column(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * 所有元素的计数总和
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * 合并另一个同规格sketch的计数（例如合并多个时间片或多个节点的统计），
+     * 合并后的估计值与把两边的元素加入同一个sketch相同
+     * @param other 深度和宽度相同的sketch
+     * @throws IllegalArgumentException 如果规格不同
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("只能合并深度和宽度相同的sketch");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * 清空所有计数
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    // 用一个64位哈希的高低两半组合出每一行的列号
+    private int column(long hash, int row) {
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % width;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(depth);
+        out.writeInt(width);
+        out.writeLong(total);
+        for (long count : counts) {
+            out.writeLong(count);
+        }
+    }
+
+    public static CountMinSketch readFrom(DataInputStream in) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(in.readInt(), in.readInt());
+        sketch.total = in.readLong();
+        for (int i = 0; i < sketch.counts.length; i++) {
+            sketch.counts[i] = in.readLong();
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,16 @@
+package com.taobaodemo.common.sketch;
+
+/**
+ * 概率数据结构使用的64位哈希（SplitMix64的混合函数，对连续整数ID也能均匀分布）
+ */
+final class SketchHash {
+    private SketchHash() {
+    }
+
+    static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,168 @@
+package com.taobaodemo.common.upload;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 上传图片访问控制器
+ * 访问地址前缀和存储目录都取自 {@link ImageStorageService}（upload.image-dir），与上传保存的位置一致。
+ * 1. 按内容哈希命名的图片（含已生成的变体）内容不会变化，返回一年的 immutable 缓存，ETag为文件名中的哈希；
+ *    旧的UUID命名图片和回退到原图的变体每次使用前需重新验证，ETag由修改时间和大小生成。
+ * 2. 支持 If-None-Match/If-Modified-Since 返回304，支持单个字节范围请求（If-Range不匹配时返回整个文件）。
+ * 3. Tomcat支持时通过sendfile零拷贝发送文件，工作线程在设置好响应头后即返回。
+ */
+@Controller
+public class ImageResourceController {
+    private static final Pattern HASHED_NAME = Pattern.compile("^[0-9a-f]{64}(?:_(thumb|medium))?\\.[a-z]+$");
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "no-cache";
+
+    // Tomcat sendfile 请求属性（结束位置不含）
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // 小文件直接写出比sendfile更快（与Tomcat DefaultServlet的默认阈值一致）
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    /**
+     * 访问上传的图片
+     * 变体（_thumb/_medium）尚未生成或无需生成时返回原图
+     */
+    @RequestMapping(value = ImageStorageService.URL_PREFIX + "**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String urlPath = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        Path file = resolve(urlPath);
+        boolean immutable = file != null && HASHED_NAME.matcher(file.getFileName().toString()).matches();
+        if (file == null || !Files.isRegularFile(file)) {
+            String originalPath = ImageVariantService.originalPath(urlPath);
+            file = originalPath != null ? resolve(originalPath) : null;
+            immutable = false;
+        }
+        MediaType mediaType = file != null ? MediaTypeFactory.getMediaType(file.getFileName().toString()).orElse(null) : null;
+        if (file == null || !Files.isRegularFile(file) || mediaType == null || !"image".equals(mediaType.getType())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String fileName = file.getFileName().toString();
+        String etag = "\"" + (immutable
+                ? fileName.substring(0, fileName.lastIndexOf('.'))
+                : Long.toHexString(lastModified) + "-" + Long.toHexString(size)) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? CACHE_IMMUTABLE : CACHE_REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && size > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of(); // 格式错误的Range忽略，返回整个文件
+            }
+            // 多个范围较少见，直接返回整个文件
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                } catch (IllegalArgumentException e) {
+                    start = size;
+                }
+                if (start >= size || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = end - start + 1;
+        response.setContentType(mediaType.toString());
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length <= 0) {
+            return;
+        }
+
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 由Tomcat在请求处理结束后直接从文件发送到socket
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    // 将访问路径映射为图片存储目录中的文件，拒绝越界路径和隐藏文件（如上传临时目录）
+    private Path resolve(String urlPath) {
+        if (!urlPath.startsWith(ImageStorageService.URL_PREFIX)) {
+            return null;
+        }
+        for (String segment : urlPath.substring(ImageStorageService.URL_PREFIX.length()).split("/")) {
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                return null;
+            }
+        }
+        return imageStorageService.resolve(urlPath);
+    }
+
+    // If-Range 可以是ETag或日期，不匹配时忽略Range返回整个文件
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
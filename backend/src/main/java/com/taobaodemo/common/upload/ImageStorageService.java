@@ -0,0 +1,133 @@
+package com.taobaodemo.common.upload;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 图片存储服务（按内容寻址）
+ * 上传内容经NIO通道边读边计算SHA-256并写入临时文件，不在堆中缓存整个文件；
+ * 完成后原子重命名为 ab/cd/<哈希>.<扩展名>，按哈希前缀分两级目录，避免单目录文件过多。
+ * 内容相同的图片只保存一份，重复上传直接返回已有地址。
+ */
+@Service
+public class ImageStorageService {
+    public static final String URL_PREFIX = "/uploads/images/products/";
+
+    private static final Set<String> ALLOWED_EXTENSIONS = Set.of("jpg", "png", "gif", "webp", "bmp");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_DIR = ".tmp";
+
+    @Value("${upload.image-dir:uploads/images/products}")
+    private String imageDir;
+
+    /**
+     * 保存上传的图片
+     * @param file 上传的文件
+     * @return 图片访问地址
+     * @throws IllegalArgumentException 如果文件格式不支持
+     * @throws IOException 如果写入失败
+     */
+    public String store(MultipartFile file) throws IOException {
+        String extension = normalizeExtension(file.getOriginalFilename());
+        Path root = getRoot();
+        // 临时文件与目标在同一目录树下，保证重命名是同一文件系统内的原子操作
+        Path tempDir = Files.createDirectories(root.resolve(TEMP_DIR));
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        try {
+            String hash;
+            try (InputStream input = file.getInputStream()) {
+                hash = copyAndDigest(input, temp);
+            }
+            String relative = relativePath(hash, extension);
+            Path target = root.resolve(relative);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // 相同内容被并发上传，已有文件即可
+                }
+            }
+            return URL_PREFIX + relative;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 图片存储根目录
+     */
+    public Path getRoot() {
+        return Paths.get(System.getProperty("user.dir")).resolve(imageDir);
+    }
+
+    /**
+     * 将图片地址映射为存储路径
+     * @param url 图片地址
+     * @return 存储路径，不是本服务保存的地址时返回null
+     */
+    public Path resolve(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        Path root = getRoot().normalize();
+        Path path = root.resolve(url.substring(URL_PREFIX.length())).normalize();
+        return path.startsWith(root) ? path : null;
+    }
+
+    // 边写临时文件边计算SHA-256
+    private String copyAndDigest(InputStream input, Path temp) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (ReadableByteChannel in = Channels.newChannel(input);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+            out.force(false);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // 哈希前两级各取两位作为子目录：ab/cd/abcd...ef.jpg
+    private String relativePath(String hash, String extension) {
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extension;
+    }
+
+    private String normalizeExtension(String filename) {
+        String extension = filename != null && filename.contains(".")
+                ? filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT)
+                : "jpg";
+        if ("jpeg".equals(extension)) {
+            extension = "jpg";
+        }
+        if (!ALLOWED_EXTENSIONS.contains(extension)) {
+            throw new IllegalArgumentException("只支持jpg/png/gif/webp/bmp格式的图片");
+        }
+        return extension;
+    }
+}
@@ -0,0 +1,18 @@
+package com.taobaodemo.common.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 图片上传结果
+ * 变体在后台生成，生成完成前访问变体地址会返回原图
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageUpload {
+    private String url;          // 原图地址
+    private String thumbnailUrl; // 缩略图地址（商品卡片使用）
+    private String mediumUrl;    // 中图地址（商品详情使用）
+}
@@ -0,0 +1,280 @@
+package com.taobaodemo.common.upload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 图片尺寸变体服务
+ * 上传后在有界线程池中用ImageIO生成缩略图和中图，与原图放在同一目录，命名为 <哈希>_thumb.<扩展名>、<哈希>_medium.<扩展名>。
+ * 解码前先读取图片头中的尺寸，超过 upload.variant-max-pixels 的原图不生成；
+ * 较大的原图解码时按行列隔点采样，只解码到最大变体的约2倍尺寸，解码内存与原图大小无关。
+ * 原图本身不超过变体尺寸、格式无法解码、尺寸超限或队列已满时不生成，访问变体地址会回退到原图（见 {@link ImageResourceController}）。
+ * 跳过的任务计入 upload.variant.skipped 指标（标签 reason：queue_full、too_large）。
+ */
+@Service
+public class ImageVariantService {
+
+    /**
+     * 图片变体：名称后缀和最长边像素
+     */
+    public enum Variant {
+        THUMB("thumb", 300),
+        MEDIUM("medium", 800);
+
+        private final String suffix;
+        private final int maxSize;
+
+        Variant(String suffix, int maxSize) {
+            this.suffix = suffix;
+            this.maxSize = maxSize;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+    }
+
+    // 按内容寻址保存的原图或变体：.../<64位哈希>[_变体].<扩展名>
+    private static final Pattern IMAGE_NAME = Pattern.compile("^(.*/[0-9a-f]{64})(?:_(thumb|medium))?\\.([a-z]+)$");
+    private static final float JPEG_QUALITY = 0.85f;
+    // 采样解码后的最长边不小于最大变体的2倍，保证缩放质量
+    private static final int DECODE_MIN_SIZE = Variant.MEDIUM.maxSize * 2;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Value("${upload.variant-threads:2}")
+    private int threads;
+
+    @Value("${upload.variant-queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${upload.variant-max-pixels:40000000}")
+    private long maxPixels;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+    private Counter queueFullCounter;
+    private Counter tooLargeCounter;
+
+    /**
+     * 创建有界线程池（守护线程，队列满时丢弃任务）
+     */
+    @PostConstruct
+    public void init() {
+        queueFullCounter = skippedCounter("queue_full");
+        tooLargeCounter = skippedCounter("too_large");
+        AtomicInteger counter = new AtomicInteger();
+        int poolSize = Math.max(threads, 1);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variant-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> queueFullCounter.increment());
+    }
+
+    private Counter skippedCounter(String reason) {
+        return Counter.builder("upload.variant.skipped")
+                .description("跳过生成的图片变体任务数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取图片变体的访问地址（按命名约定推导，非内容寻址的旧图片返回原地址）
+     * @param url 原图地址
+     * @param variant 变体
+     * @return 变体地址
+     */
+    public static String variantUrl(String url, Variant variant) {
+        Matcher matcher = url != null ? IMAGE_NAME.matcher(url) : null;
+        if (matcher == null || !matcher.matches() || matcher.group(2) != null) {
+            return url;
+        }
+        return matcher.group(1) + "_" + variant.suffix + "." + matcher.group(3);
+    }
+
+    /**
+     * 由变体路径推导原图路径
+     * @param path 请求路径
+     * @return 原图路径，不是变体路径时返回null
+     */
+    public static String originalPath(String path) {
+        Matcher matcher = IMAGE_NAME.matcher(path);
+        if (!matcher.matches() || matcher.group(2) == null) {
+            return null;
+        }
+        return matcher.group(1) + "." + matcher.group(3);
+    }
+
+    /**
+     * 提交后台任务生成全部变体（已存在的变体跳过）
+     * @param url 原图地址
+     */
+    public void generateAsync(String url) {
+        Path original = imageStorageService.resolve(url);
+        if (original == null || variantUrl(url, Variant.THUMB).equals(url)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                generate(original);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void generate(Path original) throws IOException {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = fileName.substring(0, dot);
+        String format = fileName.substring(dot + 1);
+
+        BufferedImage source = null;
+        for (Variant variant : Variant.values()) {
+            Path target = original.resolveSibling(baseName + "_" + variant.suffix + "." + format);
+            if (Files.exists(target)) {
+                continue;
+            }
+            if (source == null) {
+                source = read(original);
+                if (source == null) {
+                    return; // 无可用解码器（如webp）或尺寸超限
+                }
+            }
+            if (Math.max(source.getWidth(), source.getHeight()) <= variant.maxSize) {
+                continue; // 原图已足够小，直接使用原图
+            }
+            BufferedImage scaled = scale(source, variant.maxSize, "jpg".equals(format));
+            Path temp = Files.createTempFile(original.getParent(), baseName, ".part");
+            try {
+                if (write(scaled, format, temp)) {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 按图片头中的尺寸检查像素数，较大的图片隔点采样解码
+     * @return 解码后的图片，无可用解码器或尺寸超限时返回null
+     */
+    private BufferedImage read(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    tooLargeCounter.increment();
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / DECODE_MIN_SIZE);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 逐级减半缩放后再缩放到目标尺寸，避免一次大比例缩放产生锯齿
+    private BufferedImage scale(BufferedImage source, int maxSize, boolean opaque) {
+        double ratio = (double) maxSize / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (opaque) {
+                // JPEG不支持透明，透明区域填充白色
+                g.setColor(java.awt.Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private boolean write(BufferedImage image, String format, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            return false;
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package com.taobaodemo.common.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 注入当前登录店铺用户的店铺ID（Integer）
+ * 店铺ID在登录时解析并保存在当前用户中，不再每次请求查询数据库；
+ * 未登录、非店铺用户或店铺已删除时注入null。
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentShopId {
+}
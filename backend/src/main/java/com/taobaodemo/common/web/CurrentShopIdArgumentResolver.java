@@ -0,0 +1,42 @@
+package com.taobaodemo.common.web;
+
+import com.taobaodemo.auth.entity.User;
+import com.taobaodemo.common.util.SessionUtil;
+import com.taobaodemo.shop.service.ShopService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * {@link CurrentShopId} 参数解析器
+ * 从当前用户中读取店铺ID，并排除已删除的店铺（内存集合判断，不查询数据库）
+ */
+@Component
+public class CurrentShopIdArgumentResolver implements HandlerMethodArgumentResolver {
+    @Autowired
+    private ShopService shopService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentShopId.class)
+                && Integer.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        HttpSession session = request != null ? request.getSession(false) : null;
+        User user = session != null ? SessionUtil.getCurrentUser(session) : null;
+        if (user == null || !user.isShopUser() || user.getShopId() == null) {
+            return null;
+        }
+        return shopService.isShopDeleted(user.getShopId()) ? null : user.getShopId();
+    }
+}
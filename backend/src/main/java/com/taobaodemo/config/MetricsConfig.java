@@ -0,0 +1,21 @@
+package com.taobaodemo.config;
+
+import com.taobaodemo.common.metrics.QueryCountInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 指标配置
+ * 接口耗时（http.server.requests）、连接池（hikaricp.*）、JVM等指标由Actuator自动采集，
+ * 这里为Hibernate注册SQL语句计数器，用于统计每个请求的语句数
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountInspectorCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+    }
+}
@@ -1,12 +1,15 @@
 package com.taobaodemo.config;
 
+import com.taobaodemo.common.metrics.QueryCountInterceptor;
+import com.taobaodemo.common.web.CurrentShopIdArgumentResolver;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +18,24 @@ public class WebConfig implements WebMvcConfigurer {
     
     @Value("${server.public.ip:localhost}")
     private String serverPublicIp;
+
+    @Autowired
+    private CurrentShopIdArgumentResolver currentShopIdArgumentResolver;
+
+    @Autowired
+    private QueryCountInterceptor queryCountInterceptor;
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        // 控制器参数 @CurrentShopId Integer shopId
+        resolvers.add(currentShopIdArgumentResolver);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 统计每个请求的SQL语句数
+        registry.addInterceptor(queryCountInterceptor);
+    }
     
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -38,17 +59,4 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // 配置静态资源访问，使上传的图片可以通过URL访问
-        String uploadPath = System.getProperty("user.dir") + File.separator + "uploads";
-        // 确保路径格式正确（Windows需要转义，Linux不需要）
-        String filePath = uploadPath.replace("\\", "/");
-        if (!filePath.endsWith("/")) {
-            filePath += "/";
-        }
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + filePath);
-    }
 }
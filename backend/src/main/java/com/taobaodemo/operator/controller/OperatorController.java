@@ -3,7 +3,8 @@ package com.taobaodemo.operator.controller;
 import com.taobaodemo.shop.entity.Shop;
 import com.taobaodemo.auth.entity.User;
 import com.taobaodemo.operator.service.OperatorService;
-import com.taobaodemo.operator.service.ReportService;
+import com.taobaodemo.operator.service.OperatorDashboardService;
+import com.taobaodemo.order.service.SalesRollupService;
 import com.taobaodemo.auth.service.UserService;
 import com.taobaodemo.shop.service.ShopService;
 import com.taobaodemo.common.util.ResponseUtil;
@@ -16,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 /**
  * 运营商控制器
@@ -28,7 +30,7 @@ public class OperatorController {
     private OperatorService operatorService;
     
     @Autowired
-    private ReportService reportService;
+    private OperatorDashboardService operatorDashboardService;
 
     @Autowired
     private UserService userService;
@@ -36,22 +38,51 @@ public class OperatorController {
     @Autowired
     private ShopService shopService;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
     /**
-     * 获取运营商仪表板数据
+     * 获取运营商仪表板数据（缓存，过期后后台刷新）
      * @param session HTTP会话
-     * @return 统计数据（总用户数、总店铺数、热销商品、热门店铺）
+     * @return 统计数据（总用户数、总店铺数、热销商品、热门店铺、近一小时热门商品、店铺独立买家数）
      */
     @GetMapping("/dashboard")
     public Object getDashboard(HttpSession session) {
         if (!SessionUtil.isOperator(session)) {
             return ResponseUtil.noPermission();
         }
-        Map<String, Object> data = new HashMap<>();
-        data.put("totalUsers", reportService.getTotalUsers());
-        data.put("totalShops", reportService.getTotalShops());
-        data.put("topProducts", reportService.getTopSellingProducts(10));
-        data.put("topShops", reportService.getTopShopsByOrderCount(10));
-        return ResponseUtil.success(data);
+        try {
+            return ResponseUtil.success(operatorDashboardService.getDashboard());
+        } catch (CompletionException e) {
+            return ResponseUtil.error("加载仪表板数据失败");
+        }
+    }
+
+    /**
+     * 获取销售报表（按商品、店铺或分类，任意日期范围）
+     * @param dimension 统计维度：PRODUCT, SHOP, CATEGORY
+     * @param id 商品ID/店铺ID/分类ID
+     * @param startDate 开始日期 yyyy-MM-dd（可选，默认最近30天）
+     * @param endDate 结束日期 yyyy-MM-dd（可选，默认今天）
+     * @param period 分组周期：DAY, WEEK, MONTH（可选，默认DAY）
+     * @param session HTTP会话
+     * @return 区间合计和分组明细
+     */
+    @GetMapping("/reports/sales")
+    public Object getSalesReport(@RequestParam String dimension,
+                                 @RequestParam Integer id,
+                                 @RequestParam(required = false) String startDate,
+                                 @RequestParam(required = false) String endDate,
+                                 @RequestParam(required = false) String period,
+                                 HttpSession session) {
+        if (!SessionUtil.isOperator(session)) {
+            return ResponseUtil.noPermission();
+        }
+        try {
+            return ResponseUtil.success(salesRollupService.getSalesReport(dimension, id, startDate, endDate, period));
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.error(e.getMessage());
+        }
     }
 
     /**
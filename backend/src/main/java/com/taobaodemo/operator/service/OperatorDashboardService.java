@@ -0,0 +1,147 @@
+package com.taobaodemo.operator.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 运营商仪表板服务
+ * 各项统计在线程池中并发计算后组装；结果缓存 cache-ttl-ms，过期后先返回旧数据并在后台刷新，
+ * 同一时间最多只有一次刷新，大量并发请求在一个刷新周期内只访问一次数据库。
+ * 只有尚无缓存时（启动预热完成前）请求才会等待刷新结果。
+ */
+@Service
+public class OperatorDashboardService {
+    @Autowired
+    private ReportService reportService;
+
+    @Value("${operator.dashboard.cache-ttl-ms:30000}")
+    private long cacheTtlMillis;
+
+    @Value("${operator.dashboard.threads:6}")
+    private int threads;
+
+    private ExecutorService executor;
+    private volatile CachedDashboard cached;
+    private final AtomicReference<CompletableFuture<Map<String, Object>>> refreshing = new AtomicReference<>();
+
+    private static class CachedDashboard {
+        final Map<String, Object> data;
+        final long builtAt;
+
+        CachedDashboard(Map<String, Object> data, long builtAt) {
+            this.data = data;
+            this.builtAt = builtAt;
+        }
+    }
+
+    /**
+     * 创建统计线程池（守护线程）
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "operator-dashboard-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 应用启动后预热缓存
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refresh();
+    }
+
+    /**
+     * 获取仪表板数据（缓存过期时返回旧数据并触发后台刷新）
+     * @return 统计数据（总用户数、总店铺数、热销商品、热门店铺、近一小时热门商品、店铺独立买家数）
+     */
+    public Map<String, Object> getDashboard() {
+        CachedDashboard current = cached;
+        if (current == null) {
+            return refresh().join();
+        }
+        if (System.currentTimeMillis() - current.builtAt >= cacheTtlMillis) {
+            refresh();
+        }
+        return current.data;
+    }
+
+    /**
+     * 发起刷新；已有刷新在进行时直接返回该刷新
+     */
+    private CompletableFuture<Map<String, Object>> refresh() {
+        while (true) {
+            CompletableFuture<Map<String, Object>> inFlight = refreshing.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            CompletableFuture<Map<String, Object>> next = new CompletableFuture<>();
+            if (refreshing.compareAndSet(null, next)) {
+                build().whenComplete((data, error) -> {
+                    if (error == null) {
+                        cached = new CachedDashboard(data, System.currentTimeMillis());
+                        next.complete(data);
+                    } else {
+                        // 刷新失败时继续使用旧数据
+                        error.printStackTrace();
+                        next.completeExceptionally(error);
+                    }
+                    refreshing.set(null);
+                });
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 并发计算各项统计并组装
+     */
+    private CompletableFuture<Map<String, Object>> build() {
+        CompletableFuture<Long> totalUsers = async(reportService::getTotalUsers);
+        CompletableFuture<Long> totalShops = async(reportService::getTotalShops);
+        CompletableFuture<Map<String, Integer>> topProducts = async(() -> reportService.getTopSellingProducts(10));
+        CompletableFuture<Map<String, Integer>> topShops = async(() -> reportService.getTopShopsByOrderCount(10));
+        CompletableFuture<Map<String, Long>> trendingProducts = async(() -> reportService.getTrendingProducts(10));
+        CompletableFuture<Map<String, Long>> uniqueBuyers = async(() -> reportService.getTopShopsByUniqueBuyers(10));
+
+        return CompletableFuture.allOf(totalUsers, totalShops, topProducts, topShops, trendingProducts, uniqueBuyers)
+                .thenApply(ignored -> {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("totalUsers", totalUsers.join());
+                    data.put("totalShops", totalShops.join());
+                    data.put("topProducts", topProducts.join());
+                    data.put("topShops", topShops.join());
+                    data.put("trendingProducts", trendingProducts.join());
+                    data.put("uniqueBuyers", uniqueBuyers.join());
+                    return Collections.unmodifiableMap(data);
+                });
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+}
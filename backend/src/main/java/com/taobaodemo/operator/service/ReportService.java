@@ -1,8 +1,10 @@
 package com.taobaodemo.operator.service;
 
 import com.taobaodemo.auth.repository.UserRepository;
-import com.taobaodemo.order.entity.OrderMaster;
-import com.taobaodemo.order.repository.OrderMasterRepository;
+import com.taobaodemo.order.entity.ProductSales;
+import com.taobaodemo.order.entity.ShopSales;
+import com.taobaodemo.order.service.OrderAnalyticsService;
+import com.taobaodemo.order.service.SalesAggregateService;
 import com.taobaodemo.product.entity.Product;
 import com.taobaodemo.product.repository.ProductRepository;
 import com.taobaodemo.shop.entity.Shop;
@@ -19,8 +21,10 @@ import java.util.*;
 @Service
 public class ReportService {
     @Autowired
-    private OrderMasterRepository orderMasterRepository;
+    private SalesAggregateService salesAggregateService;
 
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
 
     @Autowired
     private ProductRepository productRepository;
@@ -32,83 +36,88 @@ public class ReportService {
     private UserRepository userRepository;
 
     /**
-     * 获取热销商品TOP N
+     * 获取热销商品TOP N（读取销量汇总表，商品名称一次批量查询）
      * @param limit 返回数量
      * @return 商品名称和销量的Map（按销量降序）
      */
     public Map<String, Integer> getTopSellingProducts(int limit) {
-        // 1. 获取所有已完成的订单
-        List<OrderMaster> completedOrders = orderMasterRepository.findByStatusInOrderByOrderDateDesc(
-            Arrays.asList(OrderMaster.STATUS_COMPLETED)
-        );
-
-        // 2. 统计每个商品的销量（合并后，订单信息已包含商品信息）
-        Map<Integer, Integer> productSales = new HashMap<>();
-        for (OrderMaster order : completedOrders) {
-            Integer productId = order.getProductId();
-            Integer quantity = order.getQuantity();
-            if (productId != null && quantity != null) {
-                productSales.put(productId, productSales.getOrDefault(productId, 0) + quantity);
-            }
+        List<ProductSales> topProducts = salesAggregateService.getTopProducts(limit);
+        List<Integer> productIds = new ArrayList<>();
+        for (ProductSales sales : topProducts) {
+            productIds.add(sales.getProductId());
+        }
+        Map<Integer, String> productNames = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            productNames.put(product.getProductId(), product.getName());
         }
 
-        // 3. 转换为列表并排序
-        List<Map.Entry<Integer, Integer>> sortedList = new ArrayList<>(productSales.entrySet());
-        sortedList.sort((a, b) -> b.getValue() - a.getValue());
-
-        // 4. 取前N个，转换为商品名称
         Map<String, Integer> result = new LinkedHashMap<>();
-        for (int i = 0; i < limit && i < sortedList.size(); i++) {
-            Map.Entry<Integer, Integer> entry = sortedList.get(i);
-            Integer productId = entry.getKey();
-            Integer sales = entry.getValue();
-            
-            Product product = productRepository.findById(productId).orElse(null);
-            String productName = product != null ? product.getName() : "未知商品";
-            
-            result.put(productName, sales);
+        for (ProductSales sales : topProducts) {
+            String productName = productNames.getOrDefault(sales.getProductId(), "未知商品");
+            result.put(productName, sales.getUnitsSold().intValue());
         }
-
         return result;
     }
 
     /**
-     * 获取热门店铺TOP N（按订单数）
+     * 获取热门店铺TOP N（按已完成订单数，读取店铺汇总表，店铺名称一次批量查询）
      * @param limit 返回数量
      * @return 店铺名称和订单数的Map（按订单数降序）
      */
     public Map<String, Integer> getTopShopsByOrderCount(int limit) {
-        // 1. 获取所有已完成的订单
-        List<OrderMaster> completedOrders = orderMasterRepository.findByStatusInOrderByOrderDateDesc(
-            Arrays.asList(OrderMaster.STATUS_COMPLETED)
-        );
-
-        // 2. 统计每个店铺的订单数
-        Map<Integer, Integer> shopOrderCounts = new HashMap<>();
-        for (OrderMaster order : completedOrders) {
-            Integer shopId = order.getShopId();
-            if (shopId != null) {
-                shopOrderCounts.put(shopId, shopOrderCounts.getOrDefault(shopId, 0) + 1);
-            }
+        List<ShopSales> topShops = salesAggregateService.getTopShops(limit);
+        List<Integer> shopIds = new ArrayList<>();
+        for (ShopSales sales : topShops) {
+            shopIds.add(sales.getShopId());
+        }
+        Map<Integer, String> shopNames = new HashMap<>();
+        for (Shop shop : shopRepository.findAllById(shopIds)) {
+            shopNames.put(shop.getShopId(), shop.getShopName());
         }
 
-        // 3. 转换为列表并排序
-        List<Map.Entry<Integer, Integer>> sortedList = new ArrayList<>(shopOrderCounts.entrySet());
-        sortedList.sort((a, b) -> b.getValue() - a.getValue());
-
-        // 4. 取前N个，转换为店铺名称
         Map<String, Integer> result = new LinkedHashMap<>();
-        for (int i = 0; i < limit && i < sortedList.size(); i++) {
-            Map.Entry<Integer, Integer> entry = sortedList.get(i);
-            Integer shopId = entry.getKey();
-            Integer orderCount = entry.getValue();
-            
-            Shop shop = shopRepository.findById(shopId).orElse(null);
-            String shopName = shop != null ? shop.getShopName() : "未知店铺";
-            
-            result.put(shopName, orderCount);
+        for (ShopSales sales : topShops) {
+            String shopName = shopNames.getOrDefault(sales.getShopId(), "未知店铺");
+            result.put(shopName, sales.getCompletedOrders().intValue());
         }
+        return result;
+    }
 
+    /**
+     * 获取近一小时热门商品TOP N（流式统计估计值，不访问订单表）
+     * @param limit 返回数量
+     * @return 商品名称和估计下单件数的Map（按件数降序）
+     */
+    public Map<String, Long> getTrendingProducts(int limit) {
+        Map<Integer, Long> trending = orderAnalyticsService.getTrendingProducts(limit);
+        Map<Integer, String> productNames = new HashMap<>();
+        for (Product product : productRepository.findAllById(trending.keySet())) {
+            productNames.put(product.getProductId(), product.getName());
+        }
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : trending.entrySet()) {
+            result.put(productNames.getOrDefault(entry.getKey(), "未知商品"), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 获取独立买家数最多的店铺TOP N（流式统计估计值，不访问订单表）
+     * @param limit 返回数量
+     * @return 店铺名称和估计独立买家数的Map（按买家数降序）
+     */
+    public Map<String, Long> getTopShopsByUniqueBuyers(int limit) {
+        Map<Integer, Long> buyers = orderAnalyticsService.getTopShopsByUniqueBuyers(limit);
+        Map<Integer, String> shopNames = new HashMap<>();
+        for (Shop shop : shopRepository.findAllById(buyers.keySet())) {
+            shopNames.put(shop.getShopId(), shop.getShopName());
+        }
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : buyers.entrySet()) {
+            result.put(shopNames.getOrDefault(entry.getKey(), "未知店铺"), entry.getValue());
+        }
         return result;
     }
 
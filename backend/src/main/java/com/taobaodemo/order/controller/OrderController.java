@@ -1,19 +1,21 @@
 package com.taobaodemo.order.controller;
 
 import com.taobaodemo.order.dto.CreateOrderRequest;
+import com.taobaodemo.order.entity.FlashSaleTicket;
 import com.taobaodemo.order.entity.OrderMaster;
+import com.taobaodemo.order.service.FlashSaleService;
 import com.taobaodemo.order.service.OrderService;
-import com.taobaodemo.shop.service.ShopService;
-import com.taobaodemo.shop.entity.Shop;
+import com.taobaodemo.order.service.OrderStatsService;
 import com.taobaodemo.auth.entity.Address;
 import com.taobaodemo.auth.service.AddressService;
 import com.taobaodemo.common.util.ResponseUtil;
 import com.taobaodemo.common.util.SessionUtil;
+import com.taobaodemo.common.web.CurrentShopId;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.Map;
 
 /**
  * 订单控制器
@@ -26,11 +28,17 @@ public class OrderController {
     private OrderService orderService;
 
     @Autowired
-    private ShopService shopService;
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
 
     @Autowired
     private AddressService addressService;
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     /**
      * 从购物车创建订单
      * @param request 订单创建请求（包含购物车商品和地址信息）
@@ -60,57 +68,136 @@ public class OrderController {
             return ResponseUtil.error("无权使用此地址");
         }
         
+        String receiverAddress = address.getProvince() + " " + address.getCity() + " " + address.getDistrict() + " " + address.getDetailAddress();
+
+        // 秒杀商品：进入排队，立即返回排队凭证
+        if (flashSaleService.containsFlashSaleProduct(request.getCartItems())) {
+            if (request.getCartItems().size() != 1) {
+                return ResponseUtil.error("秒杀商品需要单独下单");
+            }
+            Map.Entry<Integer, Integer> item = request.getCartItems().entrySet().iterator().next();
+            try {
+                FlashSaleTicket ticket = flashSaleService.submit(currentUserId, item.getKey(), item.getValue(),
+                        address.getReceiverName(), address.getReceiverPhone(), receiverAddress);
+                return ResponseUtil.success(ticket, "排队中");
+            } catch (IllegalArgumentException e) {
+                return ResponseUtil.error(e.getMessage());
+            }
+        }
+
         // 创建订单（使用地址信息）
-        Integer orderId = orderService.createOrderFromCart(
-            currentUserId, 
-            request.getCartItems(),
-            address.getReceiverName(),
-            address.getReceiverPhone(),
-            address.getProvince() + " " + address.getCity() + " " + address.getDistrict() + " " + address.getDetailAddress()
-        );
-        return ResponseUtil.success(orderId);
+        try {
+            Integer orderId = orderService.createOrderFromCart(
+                currentUserId, 
+                request.getCartItems(),
+                address.getReceiverName(),
+                address.getReceiverPhone(),
+                receiverAddress
+            );
+            return ResponseUtil.success(orderId);
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.error(e.getMessage());
+        }
     }
 
     /**
-     * 获取顾客的所有订单
+     * 查询秒杀排队结果
+     * @param ticketId 排队凭证ID
      * @param session HTTP会话
-     * @return 订单列表
+     * @return 凭证状态（QUEUED/SUCCESS/FAILED），成功时包含订单ID
      */
-    @GetMapping("/customer")
-    public Object getCustomerOrders(HttpSession session) {
+    @GetMapping("/flash-sale/tickets/{ticketId}")
+    public Object getFlashSaleTicket(@PathVariable String ticketId, HttpSession session) {
         if (!SessionUtil.isLoggedIn(session)) {
             return ResponseUtil.notLoggedIn();
         }
-        List<OrderMaster> orders = orderService.getOrdersByCustomerId(SessionUtil.getCurrentUser(session).getUserId());
-        return ResponseUtil.success(orders);
+        FlashSaleTicket ticket = flashSaleService.getTicket(ticketId, SessionUtil.getCurrentUser(session).getUserId()).orElse(null);
+        if (ticket != null) {
+            return ResponseUtil.success(ticket);
+        } else {
+            return ResponseUtil.error("排队凭证不存在或已过期");
+        }
     }
 
     /**
-     * 获取店铺的所有订单（仅店铺用户）
+     * 分页获取顾客的订单（按下单时间倒序）
+     * @param status 订单状态（可选）
+     * @param startDate 开始日期 yyyy-MM-dd（可选）
+     * @param endDate 结束日期 yyyy-MM-dd（可选）
+     * @param cursor 分页游标（可选，传上一页返回的nextCursor）
+     * @param size 每页数量（可选，默认20，最大100）
      * @param session HTTP会话
-     * @return 订单列表
+     * @return 订单分页结果（items、nextCursor、hasMore）
      */
+    @GetMapping("/customer")
+    public Object getCustomerOrders(@RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String startDate,
+                                    @RequestParam(required = false) String endDate,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer size,
+                                    HttpSession session) {
+        if (!SessionUtil.isLoggedIn(session)) {
+            return ResponseUtil.notLoggedIn();
+        }
+        try {
+            return ResponseUtil.success(orderService.getCustomerOrderPage(SessionUtil.getCurrentUser(session).getUserId(),
+                    status, startDate, endDate, cursor, pageSize(size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.error(e.getMessage());
+        }
+    }
+
     /**
-     * 获取当前登录用户的店铺ID
+     * 分页获取店铺的订单（仅店铺用户，按下单时间倒序）
+     * @param status 订单状态（可选）
+     * @param startDate 开始日期 yyyy-MM-dd（可选）
+     * @param endDate 结束日期 yyyy-MM-dd（可选）
+     * @param cursor 分页游标（可选，传上一页返回的nextCursor）
+     * @param size 每页数量（可选，默认20，最大100）
+     * @param shopId 当前店铺ID
      * @param session HTTP会话
-     * @return 店铺ID，如果不存在则返回null
+     * @return 订单分页结果（items、nextCursor、hasMore）
      */
-    private Integer getCurrentShopId(HttpSession session) {
-        Shop shop = shopService.getShopByUserId(SessionUtil.getCurrentUser(session).getUserId()).orElse(null);
-        return shop != null ? shop.getShopId() : null;
+    @GetMapping("/shop")
+    public Object getShopOrders(@RequestParam(required = false) String status,
+                                @RequestParam(required = false) String startDate,
+                                @RequestParam(required = false) String endDate,
+                                @RequestParam(required = false) String cursor,
+                                @RequestParam(required = false) Integer size,
+                                @CurrentShopId Integer shopId,
+                                HttpSession session) {
+        if (!SessionUtil.isShopUser(session)) {
+            return ResponseUtil.noPermission();
+        }
+        if (shopId == null) {
+            return ResponseUtil.error("店铺不存在");
+        }
+        try {
+            return ResponseUtil.success(orderService.getShopOrderPage(shopId, status, startDate, endDate, cursor, pageSize(size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.error(e.getMessage());
+        }
     }
 
-    @GetMapping("/shop")
-    public Object getShopOrders(HttpSession session) {
+    /**
+     * 获取店铺订单统计（仅店铺用户）：各状态订单数、今日收入、总收入
+     * @param shopId 当前店铺ID
+     * @param session HTTP会话
+     * @return 订单统计
+     */
+    @GetMapping("/shop/stats")
+    public Object getShopOrderStats(@CurrentShopId Integer shopId, HttpSession session) {
         if (!SessionUtil.isShopUser(session)) {
             return ResponseUtil.noPermission();
         }
-        Integer shopId = getCurrentShopId(session);
         if (shopId == null) {
             return ResponseUtil.error("店铺不存在");
         }
-        List<OrderMaster> orders = orderService.getOrdersByShopId(shopId);
-        return ResponseUtil.success(orders);
+        return ResponseUtil.success(orderStatsService.getShopOrderStats(shopId));
+    }
+
+    private int pageSize(Integer size) {
+        return size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
     }
 
     /**
@@ -132,11 +219,15 @@ public class OrderController {
     /**
      * 处理订单支付
      * @param id 订单ID
+     * @param session HTTP会话
      * @return 支付结果
      */
     @PostMapping("/{id}/payment")
-    public Object processPayment(@PathVariable Integer id) {
-        if (orderService.processPayment(id)) {
+    public Object processPayment(@PathVariable Integer id, HttpSession session) {
+        if (!SessionUtil.isLoggedIn(session)) {
+            return ResponseUtil.notLoggedIn();
+        }
+        if (orderService.processPayment(id, SessionUtil.getCurrentUser(session).getUserId())) {
             return ResponseUtil.success(null, "支付成功");
         } else {
             return ResponseUtil.error("支付失败");
@@ -146,15 +237,15 @@ public class OrderController {
     /**
      * 处理订单发货（仅店铺用户）
      * @param id 订单ID
+     * @param shopId 当前店铺ID
      * @param session HTTP会话
      * @return 发货结果
      */
     @PostMapping("/{id}/shipment")
-    public Object processShipment(@PathVariable Integer id, HttpSession session) {
+    public Object processShipment(@PathVariable Integer id, @CurrentShopId Integer shopId, HttpSession session) {
         if (!SessionUtil.isShopUser(session)) {
             return ResponseUtil.noPermission();
         }
-        Integer shopId = getCurrentShopId(session);
         if (shopId == null) {
             return ResponseUtil.error("店铺不存在");
         }
@@ -0,0 +1,37 @@
+package com.taobaodemo.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 销售报表：区间合计 + 按天/周/月分组的明细
+ */
+@Data
+public class SalesReport {
+    private String dimension;
+    private Integer dimensionId;
+    private String period;                         // 分组周期：DAY, WEEK, MONTH
+    private long units;                            // 区间总销量
+    private BigDecimal revenue = BigDecimal.ZERO;  // 区间总销售额
+    private long orderCount;                       // 区间总订单数
+    private List<Point> points = new ArrayList<>(); // 按周期分组的明细（按时间升序）
+
+    /**
+     * 单个周期的数据
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDate periodStart;
+        private long units;
+        private BigDecimal revenue;
+        private long orderCount;
+    }
+}
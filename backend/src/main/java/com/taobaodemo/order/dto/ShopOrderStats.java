@@ -0,0 +1,18 @@
+package com.taobaodemo.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 店铺订单统计（店铺首页使用）
+ */
+@Data
+public class ShopOrderStats {
+    private Map<String, Long> statusCounts = new LinkedHashMap<>(); // 各状态订单数
+    private long orderCount;                                        // 订单总数
+    private BigDecimal todayRevenue = BigDecimal.ZERO;              // 今日已支付订单金额
+    private BigDecimal totalRevenue = BigDecimal.ZERO;              // 已完成订单总金额
+}
@@ -0,0 +1,49 @@
+package com.taobaodemo.order.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.sql.Timestamp;
+
+/**
+ * 秒杀排队凭证实体类
+ * 对应数据库flash_sale_ticket表。秒杀商品下单后立即返回，客户端凭 ticketId 轮询处理结果，
+ * 凭证保存在数据库中，请求落到任意节点都能查询。
+ */
+@Entity
+@Table(name = "flash_sale_ticket")
+@Data
+public class FlashSaleTicket {
+    @Id
+    @Column(name = "ticket_id", length = 36)
+    private String ticketId;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "status", nullable = false, length = 10)
+    private String status; // 处理状态
+
+    @Column(name = "order_id")
+    private Integer orderId;   // 下单成功后的订单ID
+
+    @Column(name = "message", length = 100)
+    private String message;    // 失败原因
+
+    @JsonIgnore
+    @Column(name = "customer_id", nullable = false)
+    private Integer customerId; // 仅用于校验凭证归属
+
+    @JsonIgnore
+    @Column(name = "updated_at", nullable = false)
+    private Timestamp updatedAt; // 最后更新时间（用于清理过期凭证）
+
+    // 凭证状态常量
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_FAILED = "FAILED";
+}
@@ -13,8 +13,12 @@ import java.sql.Timestamp;
 @Table(name = "ordermaster")
 @Data
 public class OrderMaster {
+    // 订单ID从 id_generator 表按号段（每次50个）预分配，使Hibernate可以批量插入订单
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ordermaster_id")
+    @TableGenerator(name = "ordermaster_id", table = "id_generator",
+            pkColumnName = "gen_name", valueColumnName = "next_val",
+            pkColumnValue = "ordermaster", allocationSize = 50)
     @Column(name = "order_id")
     private Integer orderId;
 
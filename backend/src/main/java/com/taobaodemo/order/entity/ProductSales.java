@@ -0,0 +1,20 @@
+package com.taobaodemo.order.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 商品销量汇总实体类
+ * 对应数据库product_sales表，订单完成时累加，用于热销商品排行
+ */
+@Entity
+@Table(name = "product_sales")
+@Data
+public class ProductSales {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold; // 已完成订单的累计销量
+}
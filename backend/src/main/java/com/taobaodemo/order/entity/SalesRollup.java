@@ -0,0 +1,55 @@
+package com.taobaodemo.order.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * 销售汇总时间桶实体类
+ * 对应数据库sales_rollup表：按维度（商品/店铺/分类）和时间桶（小时/天/月）累计销量、销售额、订单数。
+ * 订单完成时写入小时桶，定时任务把较早的小时桶压缩为天桶、较早的天桶压缩为月桶，
+ * 同一时间段的数据只存在于一种粒度中，按时间范围求和即可得到区间数据。
+ */
+@Entity
+@Table(name = "sales_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "uk_rollup_bucket", columnNames = {"dimension", "dimension_id", "bucket_start", "granularity"}))
+@Data
+public class SalesRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long rollupId;
+
+    @Column(name = "granularity", nullable = false, length = 10)
+    private String granularity; // 时间桶粒度：HOUR, DAY, MONTH
+
+    @Column(name = "dimension", nullable = false, length = 20)
+    private String dimension; // 统计维度：PRODUCT, SHOP, CATEGORY
+
+    @Column(name = "dimension_id", nullable = false)
+    private Integer dimensionId; // 商品ID/店铺ID/分类ID
+
+    @Column(name = "bucket_start", nullable = false)
+    private Timestamp bucketStart; // 时间桶起始时间
+
+    @Column(name = "units", nullable = false)
+    private Long units; // 销量
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue; // 销售额
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount; // 订单数
+
+    // 粒度常量
+    public static final String GRANULARITY_HOUR = "HOUR";
+    public static final String GRANULARITY_DAY = "DAY";
+    public static final String GRANULARITY_MONTH = "MONTH";
+
+    // 维度常量
+    public static final String DIMENSION_PRODUCT = "PRODUCT";
+    public static final String DIMENSION_SHOP = "SHOP";
+    public static final String DIMENSION_CATEGORY = "CATEGORY";
+}
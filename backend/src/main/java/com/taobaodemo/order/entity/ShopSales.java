@@ -0,0 +1,20 @@
+package com.taobaodemo.order.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 店铺成交汇总实体类
+ * 对应数据库shop_sales表，订单完成时累加，用于热门店铺排行
+ */
+@Entity
+@Table(name = "shop_sales")
+@Data
+public class ShopSales {
+    @Id
+    @Column(name = "shop_id")
+    private Integer shopId;
+
+    @Column(name = "completed_orders", nullable = false)
+    private Long completedOrders; // 已完成订单数
+}
@@ -0,0 +1,24 @@
+package com.taobaodemo.order.repository;
+
+import com.taobaodemo.order.entity.FlashSaleTicket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+
+@Repository
+public interface FlashSaleTicketRepository extends JpaRepository<FlashSaleTicket, String> {
+    // 清理deadline之前已处理完成的凭证
+    @Modifying
+    @Query("DELETE FROM FlashSaleTicket t WHERE t.status <> 'QUEUED' AND t.updatedAt < :deadline")
+    int deleteFinishedBefore(@Param("deadline") Timestamp deadline);
+
+    // deadline之前仍在排队的凭证（处理节点已停止）标记为失败
+    @Modifying
+    @Query("UPDATE FlashSaleTicket t SET t.status = 'FAILED', t.message = :message, t.updatedAt = :now " +
+           "WHERE t.status = 'QUEUED' AND t.updatedAt < :deadline")
+    int expireQueuedBefore(@Param("deadline") Timestamp deadline, @Param("message") String message, @Param("now") Timestamp now);
+}
@@ -1,19 +1,68 @@
 package com.taobaodemo.order.repository;
 
 import com.taobaodemo.order.entity.OrderMaster;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderMasterRepository extends JpaRepository<OrderMaster, Integer> {
-    List<OrderMaster> findByCustomerIdOrderByOrderDateDesc(Integer customerId);
-    List<OrderMaster> findByShopIdOrderByOrderDateDesc(Integer shopId);
-    List<OrderMaster> findByStatusInOrderByOrderDateDesc(List<String> statuses);
+    List<OrderMaster> findTop500ByStatusAndOrderDateBefore(String status, Timestamp orderDate); // 超时未支付订单
+
+    // 订单游标分页：按 (order_date, order_id) 降序，只返回游标之后且在时间范围 [startDate, endDate) 内的数据，status为null时不限状态
+    @Query("SELECT o FROM OrderMaster o WHERE o.customerId = :customerId AND (:status IS NULL OR o.status = :status) " +
+           "AND o.orderDate >= :startDate AND o.orderDate < :endDate " +
+           "AND (o.orderDate < :cursorDate OR (o.orderDate = :cursorDate AND o.orderId < :cursorId)) " +
+           "ORDER BY o.orderDate DESC, o.orderId DESC")
+    List<OrderMaster> findCustomerOrderPage(@Param("customerId") Integer customerId, @Param("status") String status,
+                                            @Param("startDate") Timestamp startDate, @Param("endDate") Timestamp endDate,
+                                            @Param("cursorDate") Timestamp cursorDate, @Param("cursorId") Integer cursorId,
+                                            Pageable pageable);
+
+    @Query("SELECT o FROM OrderMaster o WHERE o.shopId = :shopId AND (:status IS NULL OR o.status = :status) " +
+           "AND o.orderDate >= :startDate AND o.orderDate < :endDate " +
+           "AND (o.orderDate < :cursorDate OR (o.orderDate = :cursorDate AND o.orderId < :cursorId)) " +
+           "ORDER BY o.orderDate DESC, o.orderId DESC")
+    List<OrderMaster> findShopOrderPage(@Param("shopId") Integer shopId, @Param("status") String status,
+                                        @Param("startDate") Timestamp startDate, @Param("endDate") Timestamp endDate,
+                                        @Param("cursorDate") Timestamp cursorDate, @Param("cursorId") Integer cursorId,
+                                        Pageable pageable);
+
+    // 店铺订单按状态分组汇总：[状态, 订单数, 总金额, since之后下单的金额]
+    @Query("SELECT o.status, COUNT(o), SUM(o.totalAmount), SUM(CASE WHEN o.orderDate >= :since THEN o.totalAmount ELSE 0 END) " +
+           "FROM OrderMaster o WHERE o.shopId = :shopId GROUP BY o.status")
+    List<Object[]> summarizeShopOrders(@Param("shopId") Integer shopId, @Param("since") Timestamp since);
+
+    // 商品在指定订单ID之后、未取消订单的 [购买数量合计, 最大订单ID]（热门商品启动时补扣未回写的库存）
+    @Query("SELECT SUM(o.quantity), MAX(o.orderId) FROM OrderMaster o " +
+           "WHERE o.productId = :productId AND o.orderId > :orderId AND o.status <> :excludedStatus")
+    List<Object[]> sumQuantityAfter(@Param("productId") Integer productId, @Param("orderId") Integer orderId,
+                                    @Param("excludedStatus") String excludedStatus);
+
+    @Query("SELECT MAX(o.orderId) FROM OrderMaster o WHERE o.productId = :productId")
+    Integer findMaxOrderIdByProductId(@Param("productId") Integer productId);
+
+    // 状态流转：仅当订单处于允许的原状态时更新，返回受影响行数（见 OrderStateMachine）
+    @Modifying
+    @Query("UPDATE OrderMaster o SET o.status = :to WHERE o.orderId = :orderId AND o.status IN :from")
+    int transitionStatus(@Param("orderId") Integer orderId, @Param("from") Collection<String> from, @Param("to") String to);
+
+    @Modifying
+    @Query("UPDATE OrderMaster o SET o.status = :to WHERE o.orderId = :orderId AND o.status IN :from AND o.customerId = :customerId")
+    int transitionStatusForCustomer(@Param("orderId") Integer orderId, @Param("from") Collection<String> from,
+                                    @Param("to") String to, @Param("customerId") Integer customerId);
+
+    @Modifying
+    @Query("UPDATE OrderMaster o SET o.status = :to WHERE o.orderId = :orderId AND o.status IN :from AND o.shopId = :shopId")
+    int transitionStatusForShop(@Param("orderId") Integer orderId, @Param("from") Collection<String> from,
+                                @Param("to") String to, @Param("shopId") Integer shopId);
     
     @Modifying
     @Query(value = "UPDATE ordermaster SET shop_id = NULL WHERE shop_id = :shopId", nativeQuery = true)
@@ -0,0 +1,28 @@
+package com.taobaodemo.order.repository;
+
+import com.taobaodemo.order.entity.ProductSales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductSalesRepository extends JpaRepository<ProductSales, Integer> {
+    List<ProductSales> findAllByOrderByUnitsSoldDescProductIdAsc(Pageable pageable); // 销量排行（走units_sold索引）
+
+    // 累加商品销量，不存在时插入
+    @Modifying
+    @Query(value = "INSERT INTO product_sales (product_id, units_sold) VALUES (:productId, :units) " +
+                   "ON DUPLICATE KEY UPDATE units_sold = units_sold + :units", nativeQuery = true)
+    void addUnits(@Param("productId") Integer productId, @Param("units") long units);
+
+    // 从订单表重建销量汇总
+    @Modifying
+    @Query(value = "INSERT INTO product_sales (product_id, units_sold) " +
+                   "SELECT product_id, SUM(quantity) FROM ordermaster WHERE status = :status GROUP BY product_id", nativeQuery = true)
+    void rebuildFromOrders(@Param("status") String completedStatus);
+}
@@ -0,0 +1,42 @@
+package com.taobaodemo.order.repository;
+
+import com.taobaodemo.order.entity.SalesRollup;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+    // 查询某个维度对象在 [start, end) 内的所有时间桶（走uk_rollup_bucket索引）
+    List<SalesRollup> findByDimensionAndDimensionIdAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+            String dimension, Integer dimensionId, Timestamp start, Timestamp end);
+
+    // 待压缩的时间桶：指定粒度、起始时间早于cutoff（分批处理），加写锁防止并发压缩重复累加
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<SalesRollup> findByGranularityAndBucketStartLessThanOrderByRollupIdAsc(String granularity, Timestamp cutoff, Pageable pageable);
+
+    // 按ID删除已压缩的时间桶，返回实际删除的行数
+    @Modifying
+    @Query("DELETE FROM SalesRollup r WHERE r.rollupId IN :rollupIds")
+    int deleteByRollupIdIn(@Param("rollupIds") Collection<Long> rollupIds);
+
+    // 累加时间桶，不存在时插入
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollup (granularity, dimension, dimension_id, bucket_start, units, revenue, order_count) " +
+                   "VALUES (:granularity, :dimension, :dimensionId, :bucketStart, :units, :revenue, :orders) " +
+                   "ON DUPLICATE KEY UPDATE units = units + :units, revenue = revenue + :revenue, order_count = order_count + :orders",
+           nativeQuery = true)
+    void addToBucket(@Param("granularity") String granularity, @Param("dimension") String dimension,
+                     @Param("dimensionId") Integer dimensionId, @Param("bucketStart") Timestamp bucketStart,
+                     @Param("units") long units, @Param("revenue") BigDecimal revenue, @Param("orders") long orders);
+}
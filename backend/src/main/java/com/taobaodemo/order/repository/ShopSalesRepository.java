@@ -0,0 +1,28 @@
+package com.taobaodemo.order.repository;
+
+import com.taobaodemo.order.entity.ShopSales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ShopSalesRepository extends JpaRepository<ShopSales, Integer> {
+    List<ShopSales> findAllByOrderByCompletedOrdersDescShopIdAsc(Pageable pageable); // 成交订单数排行（走completed_orders索引）
+
+    // 累加店铺成交订单数，不存在时插入
+    @Modifying
+    @Query(value = "INSERT INTO shop_sales (shop_id, completed_orders) VALUES (:shopId, :orders) " +
+                   "ON DUPLICATE KEY UPDATE completed_orders = completed_orders + :orders", nativeQuery = true)
+    void addCompletedOrders(@Param("shopId") Integer shopId, @Param("orders") long orders);
+
+    // 从订单表重建店铺汇总（已删除店铺的订单shop_id为NULL，不计入）
+    @Modifying
+    @Query(value = "INSERT INTO shop_sales (shop_id, completed_orders) " +
+                   "SELECT shop_id, COUNT(*) FROM ordermaster WHERE status = :status AND shop_id IS NOT NULL GROUP BY shop_id", nativeQuery = true)
+    void rebuildFromOrders(@Param("status") String completedStatus);
+}
@@ -0,0 +1,411 @@
+package com.taobaodemo.order.service;
+
+import com.taobaodemo.common.metrics.BusinessMetrics;
+import com.taobaodemo.order.entity.FlashSaleTicket;
+import com.taobaodemo.order.entity.OrderMaster;
+import com.taobaodemo.order.repository.FlashSaleTicketRepository;
+import com.taobaodemo.order.repository.OrderMasterRepository;
+import com.taobaodemo.product.entity.Product;
+import com.taobaodemo.product.repository.ProductRepository;
+import com.taobaodemo.product.service.InventoryReservationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 秒杀下单服务
+ * 秒杀商品（配置 flash-sale.product-ids）的下单请求放入该商品的有界队列后立即返回排队凭证，
+ * 每个商品由一个专用线程单独消费，批量扣减库存并批量创建订单，
+ * 同一商品的数据库写入被串行化，不会占满Web线程和连接池。
+ * 排队凭证保存在 flash_sale_ticket 表中，处理结果与订单在同一事务中写入，任意节点都能查询；
+ * 队列和处理线程在各节点独立，请求由接收它的节点处理。
+ */
+@Service
+public class FlashSaleService {
+    // 已处理完成的凭证保留时间
+    private static final long TICKET_RETENTION_MILLIS = 10 * 60 * 1000L;
+    // 停止时等待处理线程完成当前批次的最长时间
+    private static final long SHUTDOWN_WAIT_MILLIS = 5000L;
+
+    private static final String INSERT_TICKET_SQL =
+            "INSERT INTO flash_sale_ticket (ticket_id, customer_id, product_id, quantity, status, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_TICKET_SQL =
+            "UPDATE flash_sale_ticket SET status = ?, order_id = ?, message = ?, updated_at = ? WHERE ticket_id = ?";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderMasterRepository orderMasterRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private BusinessMetrics businessMetrics;
+
+    @Autowired
+    private FlashSaleTicketRepository flashSaleTicketRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${flash-sale.product-ids:}")
+    private String flashSaleProductIds;
+
+    @Value("${flash-sale.lane-capacity:2048}")
+    private int laneCapacity;
+
+    @Value("${flash-sale.batch-size:100}")
+    private int batchSize;
+
+    private final Map<Integer, Lane> lanes = new HashMap<>();
+    // 提交请求持有读锁，停止时持有写锁：停止之后不会再有请求进入队列
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+
+    /**
+     * 排队中的下单请求
+     */
+    private static class FlashSaleRequest {
+        final FlashSaleTicket ticket;
+        final String receiverName;
+        final String receiverPhone;
+        final String receiverAddress;
+
+        FlashSaleRequest(FlashSaleTicket ticket, String receiverName, String receiverPhone, String receiverAddress) {
+            this.ticket = ticket;
+            this.receiverName = receiverName;
+            this.receiverPhone = receiverPhone;
+            this.receiverAddress = receiverAddress;
+        }
+    }
+
+    /**
+     * 单个秒杀商品的处理通道：一个有界环形队列 + 一个写线程
+     */
+    private class Lane implements Runnable {
+        final Integer productId;
+        final BlockingQueue<FlashSaleRequest> queue;
+        final Thread worker;
+        volatile boolean running = true;
+
+        Lane(Integer productId) {
+            this.productId = productId;
+            this.queue = new ArrayBlockingQueue<>(Math.max(laneCapacity, 1));
+            this.worker = new Thread(this, "flash-sale-lane-" + productId);
+            this.worker.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<FlashSaleRequest> batch = new ArrayList<>();
+            while (running) {
+                try {
+                    FlashSaleRequest first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, Math.max(batchSize, 1) - 1);
+                    processBatch(productId, batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    for (FlashSaleRequest request : batch) {
+                        fail(request.ticket, "下单失败，请重试");
+                    }
+                    try {
+                        updateTickets(batch);
+                    } catch (RuntimeException updateFailure) {
+                        updateFailure.printStackTrace();
+                    }
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * 为每个秒杀商品启动处理通道
+     */
+    @PostConstruct
+    public void init() {
+        if (flashSaleProductIds == null || flashSaleProductIds.isBlank()) {
+            return;
+        }
+        for (String id : flashSaleProductIds.split(",")) {
+            if (!id.isBlank()) {
+                Integer productId = Integer.valueOf(id.trim());
+                Lane lane = new Lane(productId);
+                lanes.put(productId, lane);
+                lane.worker.start();
+            }
+        }
+    }
+
+    /**
+     * 停止所有处理通道：等待正在处理的批次完成，队列中剩余的请求立即标记为失败，
+     * 不必等其他节点的过期清理
+     */
+    @PreDestroy
+    public void shutdown() {
+        shutdownLock.writeLock().lock();
+        try {
+            for (Lane lane : lanes.values()) {
+                lane.running = false;
+            }
+        } finally {
+            shutdownLock.writeLock().unlock();
+        }
+        for (Lane lane : lanes.values()) {
+            try {
+                lane.worker.join(SHUTDOWN_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (lane.worker.isAlive()) {
+                lane.worker.interrupt();
+            }
+            List<FlashSaleRequest> remaining = new ArrayList<>();
+            lane.queue.drainTo(remaining);
+            if (remaining.isEmpty()) {
+                continue;
+            }
+            for (FlashSaleRequest request : remaining) {
+                fail(request.ticket, "服务正在停止，请重新下单");
+            }
+            try {
+                updateTickets(remaining);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 购物车中是否包含秒杀商品
+     * @param cartItems 购物车商品（商品ID -> 数量）
+     */
+    public boolean containsFlashSaleProduct(Map<Integer, Integer> cartItems) {
+        if (cartItems == null) {
+            return false;
+        }
+        for (Integer productId : cartItems.keySet()) {
+            if (productId != null && lanes.containsKey(productId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 提交秒杀下单请求
+     * @param customerId 顾客ID
+     * @param productId 秒杀商品ID
+     * @param quantity 购买数量
+     * @param receiverName 收货人姓名
+     * @param receiverPhone 收货人电话
+     * @param receiverAddress 收货地址
+     * @return 排队凭证
+     * @throws IllegalArgumentException 如果数量不合法或排队人数已满
+     */
+    public FlashSaleTicket submit(Integer customerId, Integer productId, Integer quantity,
+                                  String receiverName, String receiverPhone, String receiverAddress) {
+        Lane lane = lanes.get(productId);
+        if (lane == null) {
+            throw new IllegalArgumentException("该商品不是秒杀商品");
+        }
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("购买数量必须大于0");
+        }
+        shutdownLock.readLock().lock();
+        try {
+            if (!lane.running) {
+                throw new IllegalArgumentException("秒杀服务正在停止，请稍后再试");
+            }
+            // 队列已满时直接拒绝，不写数据库
+            if (lane.queue.remainingCapacity() == 0) {
+                rejectQueueFull();
+            }
+            String ticketId = UUID.randomUUID().toString();
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            // 先写入凭证再入队，处理线程更新状态时凭证一定已存在
+            jdbcTemplate.update(INSERT_TICKET_SQL, ticketId, customerId, productId, quantity, FlashSaleTicket.STATUS_QUEUED, now);
+            // 入队的凭证只由处理线程修改，返回给调用方的是另一份副本
+            if (!lane.queue.offer(new FlashSaleRequest(newTicket(ticketId, customerId, productId, quantity, now),
+                    receiverName, receiverPhone, receiverAddress))) {
+                flashSaleTicketRepository.deleteById(ticketId);
+                rejectQueueFull();
+            }
+            return newTicket(ticketId, customerId, productId, quantity, now);
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+    }
+
+    private static FlashSaleTicket newTicket(String ticketId, Integer customerId, Integer productId, Integer quantity, Timestamp now) {
+        FlashSaleTicket ticket = new FlashSaleTicket();
+        ticket.setTicketId(ticketId);
+        ticket.setCustomerId(customerId);
+        ticket.setProductId(productId);
+        ticket.setQuantity(quantity);
+        ticket.setStatus(FlashSaleTicket.STATUS_QUEUED);
+        ticket.setUpdatedAt(now);
+        return ticket;
+    }
+
+    private void rejectQueueFull() {
+        businessMetrics.recordCheckoutRejected(BusinessMetrics.CHANNEL_FLASH_SALE, BusinessMetrics.REASON_QUEUE_FULL);
+        throw new IllegalArgumentException("当前排队人数过多，请稍后再试");
+    }
+
+    /**
+     * 查询排队凭证（只能查询自己的凭证）
+     * @param ticketId 凭证ID
+     * @param customerId 顾客ID
+     * @return 凭证信息
+     */
+    public Optional<FlashSaleTicket> getTicket(String ticketId, Integer customerId) {
+        return flashSaleTicketRepository.findById(ticketId)
+                .filter(ticket -> ticket.getCustomerId().equals(customerId));
+    }
+
+    /**
+     * 处理一批请求：一次读取库存、按排队顺序分配、一次扣减、批量创建订单，凭证状态在同一事务中批量更新
+     */
+    private void processBatch(Integer productId, List<FlashSaleRequest> batch) {
+        Map<FlashSaleRequest, OrderMaster> created = new TransactionTemplate(transactionManager).execute(status -> {
+            Map<FlashSaleRequest, OrderMaster> orders = createOrders(productId, batch);
+            for (FlashSaleRequest request : batch) {
+                OrderMaster order = orders.get(request);
+                if (order != null) {
+                    request.ticket.setOrderId(order.getOrderId());
+                    request.ticket.setMessage(null);
+                    request.ticket.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+                    request.ticket.setStatus(FlashSaleTicket.STATUS_SUCCESS);
+                } else {
+                    fail(request.ticket, "商品库存不足");
+                }
+            }
+            updateTickets(batch);
+            return orders;
+        });
+
+        for (FlashSaleRequest request : batch) {
+            if (created == null || !created.containsKey(request)) {
+                businessMetrics.recordCheckoutRejected(BusinessMetrics.CHANNEL_FLASH_SALE, BusinessMetrics.REASON_OUT_OF_STOCK);
+            }
+        }
+    }
+
+    private Map<FlashSaleRequest, OrderMaster> createOrders(Integer productId, List<FlashSaleRequest> batch) {
+        Map<FlashSaleRequest, OrderMaster> orders = new LinkedHashMap<>();
+        Product product = productRepository.findById(productId).orElse(null);
+        if (product == null || !Boolean.TRUE.equals(product.getIsOnSale())) {
+            return orders;
+        }
+
+        // 单线程消费，按排队顺序分配当前可用库存
+        Integer hotAvailable = inventoryReservationService.getAvailable(productId);
+        int available = hotAvailable != null ? hotAvailable : product.getStock();
+        List<FlashSaleRequest> accepted = new ArrayList<>();
+        int total = 0;
+        for (FlashSaleRequest request : batch) {
+            int quantity = request.ticket.getQuantity();
+            if (total + quantity <= available) {
+                accepted.add(request);
+                total += quantity;
+            }
+        }
+        // 分配期间库存被店铺调小时，退回逐个扣减
+        if (total > 0 && !inventoryReservationService.reserve(productId, total)) {
+            accepted.removeIf(request -> !inventoryReservationService.reserve(productId, request.ticket.getQuantity()));
+        }
+
+        Timestamp orderDate = new Timestamp(System.currentTimeMillis());
+        for (FlashSaleRequest request : accepted) {
+            orders.put(request, orderService.newPendingOrder(request.ticket.getCustomerId(), product.getShopId(),
+                    product, request.ticket.getQuantity(), request.receiverName, request.receiverPhone,
+                    request.receiverAddress, orderDate));
+        }
+        orderMasterRepository.saveAll(orders.values());
+        inventoryReservationService.recordOrders(orders.values());
+        orderAnalyticsService.recordPlaced(orders.values());
+        businessMetrics.recordOrdersCreated(BusinessMetrics.CHANNEL_FLASH_SALE, orders.size());
+        return orders;
+    }
+
+    private void fail(FlashSaleTicket ticket, String message) {
+        ticket.setOrderId(null);
+        ticket.setMessage(message);
+        ticket.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        ticket.setStatus(FlashSaleTicket.STATUS_FAILED);
+    }
+
+    // 批量写回凭证状态（在调用方事务中执行）
+    private void updateTickets(List<FlashSaleRequest> batch) {
+        jdbcTemplate.batchUpdate(UPDATE_TICKET_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                FlashSaleTicket ticket = batch.get(i).ticket;
+                ps.setString(1, ticket.getStatus());
+                if (ticket.getOrderId() != null) {
+                    ps.setInt(2, ticket.getOrderId());
+                } else {
+                    ps.setNull(2, Types.INTEGER);
+                }
+                ps.setString(3, ticket.getMessage());
+                ps.setTimestamp(4, ticket.getUpdatedAt());
+                ps.setString(5, ticket.getTicketId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    /**
+     * 定时清理已处理完成的过期凭证，长时间未处理的凭证（处理节点已停止）标记为失败
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredTickets() {
+        long now = System.currentTimeMillis();
+        Timestamp deadline = new Timestamp(now - TICKET_RETENTION_MILLIS);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            flashSaleTicketRepository.deleteFinishedBefore(deadline);
+            flashSaleTicketRepository.expireQueuedBefore(deadline, "排队超时，请重试", new Timestamp(now));
+        });
+    }
+}
@@ -0,0 +1,310 @@
+package com.taobaodemo.order.service;
+
+import com.taobaodemo.common.sketch.CountMinSketch;
+import com.taobaodemo.common.sketch.HyperLogLog;
+import com.taobaodemo.order.entity.OrderMaster;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 订单流式统计服务（近似值）
+ * 由下单事件驱动，只占用固定内存，查询不访问数据库：
+ * 1. 近一小时热门商品：滑动窗口被分成若干时间片，每片一个Count-Min Sketch（深度4、宽度2048）
+ *    记录各商品的下单件数，并保留该片估计值最高的候选商品；查询时对窗口内各片求和后取前N。
+ *    每片的估计值偏大不超过该片总件数的 e/2048（约0.13%）的概率约为98%。
+ * 2. 店铺独立买家数：每个店铺一个HyperLogLog（精度12，4KB），相对标准误差约1.6%。
+ * 统计数据定时写入快照文件，重启时恢复。
+ * 统计保存在本节点内存中，多节点部署时每个节点只统计自己接收的订单。
+ */
+@Service
+public class OrderAnalyticsService {
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 2048;
+    private static final int CANDIDATES_PER_SLOT = 64;
+    private static final int HLL_PRECISION = 12;
+
+    @Value("${analytics.trending-window-minutes:60}")
+    private int trendingWindowMinutes;
+
+    @Value("${analytics.trending-slots:12}")
+    private int trendingSlots;
+
+    @Value("${analytics.snapshot-path:data/analytics.snapshot}")
+    private String snapshotPath;
+
+    private long slotMillis;
+    private Slot[] slots;
+    private final Map<Integer, HyperLogLog> shopBuyers = new HashMap<>();
+
+    /**
+     * 滑动窗口中的一个时间片
+     */
+    private static class Slot {
+        long epoch = -1; // 时间片编号（当前时间 / 时间片长度），-1表示未使用
+        final CountMinSketch sketch;
+        final Map<Integer, Long> candidates = new HashMap<>(); // 该片估计值最高的商品
+
+        Slot(CountMinSketch sketch) {
+            this.sketch = sketch;
+        }
+
+        void reset(long epoch) {
+            this.epoch = epoch;
+            sketch.clear();
+            candidates.clear();
+        }
+    }
+
+    /**
+     * 初始化时间片并从快照恢复
+     */
+    @PostConstruct
+    public void init() {
+        int slotCount = Math.max(trendingSlots, 1);
+        slotMillis = Math.max(trendingWindowMinutes, 1) * 60_000L / slotCount;
+        slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot(new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH));
+        }
+        loadSnapshot();
+    }
+
+    /**
+     * 记录新创建的订单（在所在事务提交后计入，回滚的订单不计入）
+     * @param orders 新创建的订单
+     */
+    public void recordPlaced(Collection<OrderMaster> orders) {
+        List<OrderMaster> placed = new ArrayList<>(orders);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(placed);
+                }
+            });
+        } else {
+            record(placed);
+        }
+    }
+
+    private synchronized void record(List<OrderMaster> orders) {
+        Slot slot = currentSlot();
+        for (OrderMaster order : orders) {
+            if (order.getProductId() != null && order.getQuantity() != null) {
+                slot.sketch.add(order.getProductId(), order.getQuantity());
+                slot.candidates.put(order.getProductId(), slot.sketch.estimate(order.getProductId()));
+                if (slot.candidates.size() > CANDIDATES_PER_SLOT) {
+                    evictSmallestCandidate(slot);
+                }
+            }
+            if (order.getShopId() != null && order.getCustomerId() != null) {
+                shopBuyers.computeIfAbsent(order.getShopId(), k -> new HyperLogLog(HLL_PRECISION))
+                        .add(order.getCustomerId());
+            }
+        }
+    }
+
+    private void evictSmallestCandidate(Slot slot) {
+        Integer smallest = null;
+        long smallestCount = Long.MAX_VALUE;
+        for (Map.Entry<Integer, Long> entry : slot.candidates.entrySet()) {
+            if (entry.getValue() < smallestCount) {
+                smallest = entry.getKey();
+                smallestCount = entry.getValue();
+            }
+        }
+        slot.candidates.remove(smallest);
+    }
+
+    // 当前时间所在的时间片，过期的时间片在复用前清空
+    private Slot currentSlot() {
+        long epoch = System.currentTimeMillis() / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        if (slot.epoch != epoch) {
+            slot.reset(epoch);
+        }
+        return slot;
+    }
+
+    /**
+     * 获取滑动窗口内下单件数最多的商品（估计值）
+     * @param limit 返回数量
+     * @return 商品ID -> 估计件数（按件数降序）
+     */
+    public synchronized Map<Integer, Long> getTrendingProducts(int limit) {
+        long oldestEpoch = System.currentTimeMillis() / slotMillis - slots.length + 1;
+        Set<Integer> candidates = new HashSet<>();
+        for (Slot slot : slots) {
+            if (slot.epoch >= oldestEpoch) {
+                candidates.addAll(slot.candidates.keySet());
+            }
+        }
+        List<Map.Entry<Integer, Long>> estimates = new ArrayList<>();
+        for (Integer productId : candidates) {
+            long estimate = 0;
+            for (Slot slot : slots) {
+                if (slot.epoch >= oldestEpoch) {
+                    estimate += slot.sketch.estimate(productId);
+                }
+            }
+            estimates.add(new AbstractMap.SimpleEntry<>(productId, estimate));
+        }
+        estimates.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        Map<Integer, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < limit && i < estimates.size(); i++) {
+            result.put(estimates.get(i).getKey(), estimates.get(i).getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 获取独立买家数最多的店铺（估计值）
+     * @param limit 返回数量
+     * @return 店铺ID -> 估计独立买家数（按买家数降序）
+     */
+    public synchronized Map<Integer, Long> getTopShopsByUniqueBuyers(int limit) {
+        List<Map.Entry<Integer, Long>> estimates = new ArrayList<>();
+        for (Map.Entry<Integer, HyperLogLog> entry : shopBuyers.entrySet()) {
+            estimates.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().estimate()));
+        }
+        estimates.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        Map<Integer, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < limit && i < estimates.size(); i++) {
+            result.put(estimates.get(i).getKey(), estimates.get(i).getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 获取店铺的独立买家数（估计值）
+     * @param shopId 店铺ID
+     * @return 估计独立买家数
+     */
+    public synchronized long getUniqueBuyers(Integer shopId) {
+        HyperLogLog hll = shopBuyers.get(shopId);
+        return hll != null ? hll.estimate() : 0;
+    }
+
+    /**
+     * 定时写入快照（先在锁内序列化到内存，再写临时文件并原子替换）
+     */
+    @Scheduled(fixedDelayString = "${analytics.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        byte[] data;
+        try {
+            data = serialize();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Path path = Paths.get(snapshotPath);
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = Paths.get(snapshotPath + ".tmp");
+            Files.write(temp, data);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 应用关闭前写入快照
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    private synchronized byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(slotMillis);
+            out.writeInt(slots.length);
+            for (Slot slot : slots) {
+                out.writeLong(slot.epoch);
+                slot.sketch.writeTo(out);
+                out.writeInt(slot.candidates.size());
+                for (Map.Entry<Integer, Long> entry : slot.candidates.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            out.writeInt(shopBuyers.size());
+            for (Map.Entry<Integer, HyperLogLog> entry : shopBuyers.entrySet()) {
+                out.writeInt(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 从快照恢复；时间片配置变化时只恢复独立买家统计
+     * 先完整解析到局部变量，读取成功后才替换当前数据，快照损坏时不会只恢复一部分
+     */
+    private synchronized void loadSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        Slot[] loadedSlots = new Slot[slots.length];
+        Map<Integer, HyperLogLog> loadedBuyers = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return;
+            }
+            boolean sameWindow = in.readLong() == slotMillis;
+            int slotCount = in.readInt();
+            sameWindow = sameWindow && slotCount == slots.length;
+            for (int i = 0; i < slotCount; i++) {
+                long epoch = in.readLong();
+                CountMinSketch sketch = CountMinSketch.readFrom(in);
+                Map<Integer, Long> candidates = new HashMap<>();
+                int candidateCount = in.readInt();
+                for (int j = 0; j < candidateCount; j++) {
+                    candidates.put(in.readInt(), in.readLong());
+                }
+                if (sameWindow && sketch.getDepth() == SKETCH_DEPTH && sketch.getWidth() == SKETCH_WIDTH) {
+                    Slot slot = new Slot(sketch);
+                    slot.epoch = epoch;
+                    slot.candidates.putAll(candidates);
+                    loadedSlots[i] = slot;
+                }
+            }
+            int shopCount = in.readInt();
+            for (int i = 0; i < shopCount; i++) {
+                loadedBuyers.put(in.readInt(), HyperLogLog.readFrom(in));
+            }
+        } catch (IOException | RuntimeException e) {
+            // 快照损坏时从空数据开始统计
+            e.printStackTrace();
+            return;
+        }
+        for (int i = 0; i < loadedSlots.length; i++) {
+            if (loadedSlots[i] != null) {
+                slots[i] = loadedSlots[i];
+            }
+        }
+        shopBuyers.putAll(loadedBuyers);
+    }
+}
@@ -1,18 +1,29 @@
 package com.taobaodemo.order.service;
 
+import com.taobaodemo.common.dto.CursorPage;
+import com.taobaodemo.common.metrics.BusinessMetrics;
 import com.taobaodemo.order.entity.OrderMaster;
 import com.taobaodemo.product.entity.Product;
 import com.taobaodemo.order.repository.OrderMasterRepository;
 import com.taobaodemo.product.repository.ProductRepository;
+import com.taobaodemo.product.service.InventoryReservationService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 /**
  * 订单服务类
@@ -26,6 +37,30 @@ public class OrderService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private SalesAggregateService salesAggregateService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private BusinessMetrics businessMetrics;
+
+    // 未指定结束日期时的时间上界
+    private static final Timestamp MAX_ORDER_DATE = Timestamp.valueOf("9999-12-31 00:00:00");
+
+    @Value("${order.payment-timeout-minutes:30}")
+    private int paymentTimeoutMinutes;
+
     /**
      * 从购物车创建订单（每个商品生成一条订单记录）
      *
@@ -38,6 +73,7 @@ public class OrderService {
      * @param receiverPhone   收货人电话
      * @param receiverAddress 收货地址
      * @return 第一个创建成功的订单ID
+     * @throws IllegalArgumentException 如果购物车为空、数量不合法或库存不足（整单回滚）
      */
     @Transactional
     public Integer createOrderFromCart(Integer customerId, Map<Integer, Integer> cartItems, 
@@ -46,66 +82,95 @@ public class OrderService {
             throw new IllegalArgumentException("购物车为空");
         }
 
-        // 创建订单
+        // 按商品ID排序（热门商品以外的库存按此顺序加行锁，避免并发下单互相死锁）
+        Map<Integer, Integer> items = new TreeMap<>(cartItems);
+        for (Integer quantity : items.values()) {
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("购买数量必须大于0");
+            }
+        }
+
+        // 一次查询加载购物车中的所有商品
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(items.keySet())) {
+            products.put(product.getProductId(), product);
+        }
+        // 商品不存在就跳过这条（也可以根据需要抛异常）
+        items.keySet().retainAll(products.keySet());
+        if (items.isEmpty()) {
+            return null;
+        }
+
+        // 批量预占库存（热门商品走内存，其余为一次JDBC批量条件扣减），任意一件失败整单回滚
+        Integer outOfStockProductId = inventoryReservationService.reserveAll(items);
+        if (outOfStockProductId != null) {
+            businessMetrics.recordCheckoutRejected(BusinessMetrics.CHANNEL_CART, BusinessMetrics.REASON_OUT_OF_STOCK);
+            throw new IllegalArgumentException("商品库存不足：" + products.get(outOfStockProductId).getName());
+        }
+
+        // 创建订单（每个商品一个订单），订单ID按号段预分配，随事务提交一次批量插入
         Integer shopId = null;          // 当前这批订单所属的店铺ID
-        Integer firstOrderId = null;    // 记录第一条订单的ID，方便返回
         Timestamp orderDate = new Timestamp(System.currentTimeMillis()); // 同一批订单使用相同时间
-        
-        // 遍历购物车里的每一件商品
-        for (Map.Entry<Integer, Integer> entry : cartItems.entrySet()) {
+        List<OrderMaster> orders = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : items.entrySet()) {
             Integer productId = entry.getKey();    // 商品ID
             Integer quantity = entry.getValue();   // 购买数量
+            Product product = products.get(productId);
 
-            Product product = productRepository.findById(productId).orElse(null);
-            if (product == null) {
-                // 商品不存在就跳过这条（也可以根据需要抛异常）
-                continue;
-            }
-            
             if (shopId == null) {
                 shopId = product.getShopId();
             }
 
-            // 更新库存
-            product.setStock(product.getStock() - quantity);
-            productRepository.save(product);
-
-            // 创建订单（每个商品一个订单）
-            OrderMaster order = new OrderMaster();
-            order.setCustomerId(customerId);
-            order.setShopId(shopId);
-            order.setTotalAmount(product.getPrice().multiply(new BigDecimal(quantity)));
-            order.setStatus(OrderMaster.STATUS_PENDING_PAYMENT);
-            order.setOrderDate(orderDate); // 同一批订单使用相同时间
-            order.setReceiverName(receiverName);
-            order.setReceiverPhone(receiverPhone);
-            order.setReceiverAddress(receiverAddress);
-            order.setProductId(productId);
-            order.setQuantity(quantity);
-            order.setPriceAtPurchase(product.getPrice());
-            
-            order = orderMasterRepository.save(order);
-            if (firstOrderId == null) {
-                firstOrderId = order.getOrderId();
-            }
+            orders.add(newPendingOrder(customerId, shopId, product, quantity,
+                    receiverName, receiverPhone, receiverAddress, orderDate)); // 同一批订单使用相同时间
         }
-        
-        return firstOrderId; // 返回第一个订单ID
+
+        orders = orderMasterRepository.saveAll(orders);
+        inventoryReservationService.recordOrders(orders);
+        orderAnalyticsService.recordPlaced(orders);
+        businessMetrics.recordOrdersCreated(BusinessMetrics.CHANNEL_CART, orders.size());
+        return orders.get(0).getOrderId(); // 返回第一个订单ID
+    }
+
+    /**
+     * 构造待支付订单（不保存）
+     * @param customerId 顾客ID
+     * @param shopId 店铺ID
+     * @param product 商品（取当前价格作为快照）
+     * @param quantity 购买数量
+     * @param receiverName 收货人姓名
+     * @param receiverPhone 收货人电话
+     * @param receiverAddress 收货地址
+     * @param orderDate 下单时间
+     * @return 订单
+     */
+    OrderMaster newPendingOrder(Integer customerId, Integer shopId, Product product, int quantity,
+                                String receiverName, String receiverPhone, String receiverAddress,
+                                Timestamp orderDate) {
+        OrderMaster order = new OrderMaster();
+        order.setCustomerId(customerId);
+        order.setShopId(shopId);
+        order.setTotalAmount(product.getPrice().multiply(new BigDecimal(quantity)));
+        order.setStatus(OrderMaster.STATUS_PENDING_PAYMENT);
+        order.setOrderDate(orderDate);
+        order.setReceiverName(receiverName);
+        order.setReceiverPhone(receiverPhone);
+        order.setReceiverAddress(receiverAddress);
+        order.setProductId(product.getProductId());
+        order.setQuantity(quantity);
+        order.setPriceAtPurchase(product.getPrice());
+        return order;
     }
 
     /**
      * 处理订单支付（将状态从"待支付"改为"待发货"）
      * @param orderId 订单ID
+     * @param customerId 顾客ID（验证订单归属）
      * @return 支付成功返回true，失败返回false
      */
-    public boolean processPayment(Integer orderId) {
-        OrderMaster order = orderMasterRepository.findById(orderId).orElse(null);
-        if (order != null && OrderMaster.STATUS_PENDING_PAYMENT.equals(order.getStatus())) {
-            order.setStatus(OrderMaster.STATUS_PENDING_SHIPMENT);
-            orderMasterRepository.save(order);
-            return true;
-        }
-        return false;
+    @Transactional
+    public boolean processPayment(Integer orderId, Integer customerId) {
+        return orderStateMachine.fire(OrderStateMachine.Transition.PAY, orderId, customerId);
     }
 
     /**
@@ -114,33 +179,120 @@ public class OrderService {
      * @param customerId 顾客ID（验证订单归属）
      * @return 确认成功返回true，失败返回false
      */
+    @Transactional
     public boolean confirmReceipt(Integer orderId, Integer customerId) {
-        OrderMaster order = orderMasterRepository.findById(orderId).orElse(null);
-        if (order != null && order.getCustomerId().equals(customerId) &&
-            OrderMaster.STATUS_PENDING_RECEIPT.equals(order.getStatus())) {
-            order.setStatus(OrderMaster.STATUS_COMPLETED);
-            orderMasterRepository.save(order);
-            return true;
+        if (!orderStateMachine.fire(OrderStateMachine.Transition.CONFIRM_RECEIPT, orderId, customerId)) {
+            return false;
         }
-        return false;
+        // 订单完成，计入销售汇总和时间桶
+        orderMasterRepository.findById(orderId).ifPresent(order -> {
+            salesAggregateService.recordCompleted(order);
+            salesRollupService.recordCompleted(order);
+        });
+        return true;
     }
 
     /**
-     * 获取顾客的所有订单
+     * 分页获取顾客的订单（按下单时间倒序）
      * @param customerId 顾客ID
-     * @return 订单列表
+     * @param status 订单状态（可选）
+     * @param startDate 开始日期 yyyy-MM-dd（可选，包含当天）
+     * @param endDate 结束日期 yyyy-MM-dd（可选，包含当天）
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量
+     * @return 订单分页结果
+     * @throws IllegalArgumentException 如果日期或游标格式不正确
      */
-    public List<OrderMaster> getOrdersByCustomerId(Integer customerId) {
-        return orderMasterRepository.findByCustomerIdOrderByOrderDateDesc(customerId);
+    public CursorPage<OrderMaster> getCustomerOrderPage(Integer customerId, String status, String startDate,
+                                                        String endDate, String cursor, int size) {
+        Timestamp start = parseStartDate(startDate);
+        Timestamp end = parseEndDate(endDate);
+        OrderCursor after = parseOrderCursor(cursor, end);
+        return toOrderPage(orderMasterRepository.findCustomerOrderPage(customerId, blankToNull(status), start, end,
+                after.orderDate, after.orderId, PageRequest.of(0, size + 1)), size);
     }
 
     /**
-     * 获取店铺的所有订单
+     * 分页获取店铺的订单（按下单时间倒序）
      * @param shopId 店铺ID
-     * @return 订单列表
+     * @param status 订单状态（可选）
+     * @param startDate 开始日期 yyyy-MM-dd（可选，包含当天）
+     * @param endDate 结束日期 yyyy-MM-dd（可选，包含当天）
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量
+     * @return 订单分页结果
+     * @throws IllegalArgumentException 如果日期或游标格式不正确
+     */
+    public CursorPage<OrderMaster> getShopOrderPage(Integer shopId, String status, String startDate,
+                                                    String endDate, String cursor, int size) {
+        Timestamp start = parseStartDate(startDate);
+        Timestamp end = parseEndDate(endDate);
+        OrderCursor after = parseOrderCursor(cursor, end);
+        return toOrderPage(orderMasterRepository.findShopOrderPage(shopId, blankToNull(status), start, end,
+                after.orderDate, after.orderId, PageRequest.of(0, size + 1)), size);
+    }
+
+    /**
+     * 订单游标：上一页最后一条订单的下单时间和订单ID
+     */
+    private static class OrderCursor {
+        final Timestamp orderDate;
+        final Integer orderId;
+
+        OrderCursor(Timestamp orderDate, Integer orderId) {
+            this.orderDate = orderDate;
+            this.orderId = orderId;
+        }
+    }
+
+    /**
+     * 解析游标，格式为"下单时间毫秒数_订单ID"；为空时从时间范围的上界开始
      */
-    public List<OrderMaster> getOrdersByShopId(Integer shopId) {
-        return orderMasterRepository.findByShopIdOrderByOrderDateDesc(shopId);
+    private OrderCursor parseOrderCursor(String cursor, Timestamp end) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new OrderCursor(end, Integer.MAX_VALUE);
+        }
+        String[] parts = cursor.split("_");
+        try {
+            return new OrderCursor(new Timestamp(Long.parseLong(parts[0])), Integer.valueOf(parts[1]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    private Timestamp parseStartDate(String date) {
+        return date == null || date.isEmpty() ? new Timestamp(0) : Timestamp.valueOf(parseDate(date).atStartOfDay());
+    }
+
+    // 结束日期包含当天，转换为次日零点作为开区间上界
+    private Timestamp parseEndDate(String date) {
+        return date == null || date.isEmpty() ? MAX_ORDER_DATE : Timestamp.valueOf(parseDate(date).plusDays(1).atStartOfDay());
+    }
+
+    private LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式应为yyyy-MM-dd");
+        }
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * 将多查询一条的结果转换为分页结果
+     */
+    private CursorPage<OrderMaster> toOrderPage(List<OrderMaster> rows, int size) {
+        boolean hasMore = rows.size() > size;
+        List<OrderMaster> pageRows = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderMaster last = pageRows.get(pageRows.size() - 1);
+            nextCursor = last.getOrderDate().getTime() + "_" + last.getOrderId();
+        }
+        return new CursorPage<>(pageRows, nextCursor, hasMore);
     }
 
 
@@ -150,15 +302,9 @@ public class OrderService {
      * @param shopId 店铺ID（验证订单归属）
      * @return 发货成功返回true，失败返回false
      */
+    @Transactional
     public boolean processShipment(Integer orderId, Integer shopId) {
-        OrderMaster order = orderMasterRepository.findById(orderId).orElse(null);
-        if (order != null && order.getShopId() != null && order.getShopId().equals(shopId) &&
-            OrderMaster.STATUS_PENDING_SHIPMENT.equals(order.getStatus())) {
-            order.setStatus(OrderMaster.STATUS_PENDING_RECEIPT);
-            orderMasterRepository.save(order);
-            return true;
-        }
-        return false;
+        return orderStateMachine.fire(OrderStateMachine.Transition.SHIP, orderId, shopId);
     }
 
     /**
@@ -178,35 +324,30 @@ public class OrderService {
      */
     @Transactional
     public boolean cancelOrder(Integer orderId, Integer customerId) {
-        OrderMaster order = orderMasterRepository.findById(orderId).orElse(null);
-        if (order == null) {
+        // 只能取消自己的待支付或待发货订单，状态条件保证并发取消、支付时只有一个生效
+        if (!orderStateMachine.fire(OrderStateMachine.Transition.CANCEL, orderId, customerId)) {
             return false;
         }
-        
-        // 验证订单归属
-        if (!order.getCustomerId().equals(customerId)) {
-            return false;
-        }
-        
-        // 只能取消待支付或待发货的订单
-        if (!OrderMaster.STATUS_PENDING_PAYMENT.equals(order.getStatus()) && 
-            !OrderMaster.STATUS_PENDING_SHIPMENT.equals(order.getStatus())) {
-            return false;
-        }
-        
-        // 如果订单是待发货状态（已付款），需要恢复库存
-        if (OrderMaster.STATUS_PENDING_SHIPMENT.equals(order.getStatus())) {
-            Product product = productRepository.findById(order.getProductId()).orElse(null);
-            if (product != null) {
-                product.setStock(product.getStock() + order.getQuantity());
-                productRepository.save(product);
+        // 下单时已扣减库存，取消成功后归还（待支付、待发货都需要）
+        orderMasterRepository.findById(orderId).ifPresent(order ->
+                inventoryReservationService.release(order.getProductId(), order.getQuantity()));
+        return true;
+    }
+
+    /**
+     * 定时取消超时未支付的订单并归还库存
+     * 使用带状态条件的UPDATE，与同时发生的支付不会冲突
+     */
+    @Scheduled(fixedDelayString = "${order.payment-timeout-check-interval-ms:60000}")
+    @Transactional
+    public void cancelExpiredOrders() {
+        Timestamp deadline = new Timestamp(System.currentTimeMillis() - paymentTimeoutMinutes * 60_000L);
+        List<OrderMaster> expiredOrders = orderMasterRepository.findTop500ByStatusAndOrderDateBefore(
+                OrderMaster.STATUS_PENDING_PAYMENT, deadline);
+        for (OrderMaster order : expiredOrders) {
+            if (orderStateMachine.fire(OrderStateMachine.Transition.EXPIRE, order.getOrderId(), null)) {
+                inventoryReservationService.release(order.getProductId(), order.getQuantity());
             }
         }
-        
-        // 更新订单状态为已取消
-        order.setStatus(OrderMaster.STATUS_CANCELLED);
-        orderMasterRepository.save(order);
-        return true;
     }
 }
-
@@ -0,0 +1,89 @@
+package com.taobaodemo.order.service;
+
+import com.taobaodemo.order.entity.OrderMaster;
+import com.taobaodemo.order.repository.OrderMasterRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 订单状态机
+ * 所有合法的状态流转都定义在 {@link Transition} 中，
+ * 每次流转只执行一条带原状态和归属条件的UPDATE，以受影响行数判断是否成功，
+ * 并发的重复操作（如同时支付和取消）只会有一个生效。
+ */
+@Component
+public class OrderStateMachine {
+
+    /**
+     * 发起流转的一方，决定UPDATE附加的归属条件
+     */
+    public enum Actor {
+        CUSTOMER, // 校验 customer_id
+        SHOP,     // 校验 shop_id
+        SYSTEM    // 不校验归属（定时任务）
+    }
+
+    /**
+     * 合法状态流转表：发起方、允许的原状态、目标状态
+     */
+    public enum Transition {
+        PAY(Actor.CUSTOMER, List.of(OrderMaster.STATUS_PENDING_PAYMENT), OrderMaster.STATUS_PENDING_SHIPMENT),
+        SHIP(Actor.SHOP, List.of(OrderMaster.STATUS_PENDING_SHIPMENT), OrderMaster.STATUS_PENDING_RECEIPT),
+        CONFIRM_RECEIPT(Actor.CUSTOMER, List.of(OrderMaster.STATUS_PENDING_RECEIPT), OrderMaster.STATUS_COMPLETED),
+        CANCEL(Actor.CUSTOMER, List.of(OrderMaster.STATUS_PENDING_PAYMENT, OrderMaster.STATUS_PENDING_SHIPMENT), OrderMaster.STATUS_CANCELLED),
+        EXPIRE(Actor.SYSTEM, List.of(OrderMaster.STATUS_PENDING_PAYMENT), OrderMaster.STATUS_CANCELLED);
+
+        private final Actor actor;
+        private final List<String> from;
+        private final String to;
+
+        Transition(Actor actor, List<String> from, String to) {
+            this.actor = actor;
+            this.from = from;
+            this.to = to;
+        }
+
+        public Actor getActor() {
+            return actor;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public List<String> getFrom() {
+            return from;
+        }
+    }
+
+    @Autowired
+    private OrderMasterRepository orderMasterRepository;
+
+    /**
+     * 执行状态流转（需要在事务中调用）
+     * @param transition 状态流转
+     * @param orderId 订单ID
+     * @param actorId 发起方ID（顾客为用户ID，店铺为店铺ID，系统流转忽略）
+     * @return 订单存在、归属正确且处于允许的原状态时返回true
+     */
+    public boolean fire(Transition transition, Integer orderId, Integer actorId) {
+        if (orderId == null || (transition.actor != Actor.SYSTEM && actorId == null)) {
+            return false;
+        }
+        int updated;
+        switch (transition.actor) {
+            case CUSTOMER:
+                updated = orderMasterRepository.transitionStatusForCustomer(orderId, transition.from, transition.to, actorId);
+                break;
+            case SHOP:
+                updated = orderMasterRepository.transitionStatusForShop(orderId, transition.from, transition.to, actorId);
+                break;
+            default:
+                updated = orderMasterRepository.transitionStatus(orderId, transition.from, transition.to);
+                break;
+        }
+        return updated > 0;
+    }
+}
@@ -0,0 +1,88 @@
+package com.taobaodemo.order.service;
+
+import com.taobaodemo.order.dto.ShopOrderStats;
+import com.taobaodemo.order.entity.OrderMaster;
+import com.taobaodemo.order.repository.OrderMasterRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订单统计服务
+ * 店铺统计由一条按状态分组的聚合查询得出，结果按店铺缓存一小段时间，
+ * 店铺首页频繁刷新时不会重复扫描订单。
+ */
+@Service
+public class OrderStatsService {
+    // 计入今日收入的状态（已支付且未取消）
+    private static final Set<String> PAID_STATUSES = Set.of(
+            OrderMaster.STATUS_PENDING_SHIPMENT, OrderMaster.STATUS_PENDING_RECEIPT, OrderMaster.STATUS_COMPLETED);
+
+    @Autowired
+    private OrderMasterRepository orderMasterRepository;
+
+    @Value("${order.shop-stats-cache-ttl-ms:5000}")
+    private long cacheTtlMillis;
+
+    private final Map<Integer, CachedStats> cache = new ConcurrentHashMap<>();
+
+    private static class CachedStats {
+        final ShopOrderStats stats;
+        final long expiresAt;
+
+        CachedStats(ShopOrderStats stats, long expiresAt) {
+            this.stats = stats;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 获取店铺订单统计：各状态订单数、今日收入、总收入
+     * @param shopId 店铺ID
+     * @return 统计结果（最多延迟 order.shop-stats-cache-ttl-ms）
+     */
+    public ShopOrderStats getShopOrderStats(Integer shopId) {
+        long now = System.currentTimeMillis();
+        CachedStats cached = cache.get(shopId);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.stats;
+        }
+        ShopOrderStats stats = loadShopOrderStats(shopId);
+        cache.put(shopId, new CachedStats(stats, now + cacheTtlMillis));
+        return stats;
+    }
+
+    private ShopOrderStats loadShopOrderStats(Integer shopId) {
+        ShopOrderStats stats = new ShopOrderStats();
+        for (String status : List.of(OrderMaster.STATUS_PENDING_PAYMENT, OrderMaster.STATUS_PENDING_SHIPMENT,
+                OrderMaster.STATUS_PENDING_RECEIPT, OrderMaster.STATUS_COMPLETED, OrderMaster.STATUS_CANCELLED)) {
+            stats.getStatusCounts().put(status, 0L);
+        }
+        Timestamp todayStart = Timestamp.valueOf(LocalDate.now().atStartOfDay());
+        // 每行：[状态, 订单数, 总金额, 今日下单金额]
+        for (Object[] row : orderMasterRepository.summarizeShopOrders(shopId, todayStart)) {
+            String status = (String) row[0];
+            long count = ((Number) row[1]).longValue();
+            BigDecimal amount = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            BigDecimal todayAmount = row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO;
+
+            stats.getStatusCounts().put(status, count);
+            stats.setOrderCount(stats.getOrderCount() + count);
+            if (PAID_STATUSES.contains(status)) {
+                stats.setTodayRevenue(stats.getTodayRevenue().add(todayAmount));
+            }
+            if (OrderMaster.STATUS_COMPLETED.equals(status)) {
+                stats.setTotalRevenue(stats.getTotalRevenue().add(amount));
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,95 @@
+package com.taobaodemo.order.service;
+
+import com.taobaodemo.order.entity.OrderMaster;
+import com.taobaodemo.order.entity.ProductSales;
+import com.taobaodemo.order.entity.ShopSales;
+import com.taobaodemo.order.repository.ProductSalesRepository;
+import com.taobaodemo.order.repository.ShopSalesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * 销售汇总服务
+ * 维护商品累计销量和店铺成交订单数两张汇总表：订单完成时在同一事务中累加，
+ * 店铺删除时移除该店铺的汇总（与订单shop_id置空保持一致）。
+ * 排行榜只按索引读取前N行，查询开销与订单历史量无关。
+ */
+@Service
+public class SalesAggregateService {
+    @Autowired
+    private ProductSalesRepository productSalesRepository;
+
+    @Autowired
+    private ShopSalesRepository shopSalesRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 汇总表为空时（首次部署或升级后）从订单表重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (productSalesRepository.count() == 0 && shopSalesRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从已完成订单重建汇总表（全表扫描，仅用于初始化和修复数据）
+     */
+    public void rebuild() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            productSalesRepository.deleteAllInBatch();
+            shopSalesRepository.deleteAllInBatch();
+            productSalesRepository.rebuildFromOrders(OrderMaster.STATUS_COMPLETED);
+            shopSalesRepository.rebuildFromOrders(OrderMaster.STATUS_COMPLETED);
+        });
+    }
+
+    /**
+     * 记录一笔已完成的订单（需要在订单变为"已完成"的同一事务中调用）
+     * @param order 订单信息
+     */
+    public void recordCompleted(OrderMaster order) {
+        if (order.getProductId() != null && order.getQuantity() != null) {
+            productSalesRepository.addUnits(order.getProductId(), order.getQuantity());
+        }
+        if (order.getShopId() != null) {
+            shopSalesRepository.addCompletedOrders(order.getShopId(), 1);
+        }
+    }
+
+    /**
+     * 移除店铺的成交汇总（店铺删除后其订单不再计入店铺排行）
+     * @param shopId 店铺ID
+     */
+    public void removeShop(Integer shopId) {
+        shopSalesRepository.deleteById(shopId);
+    }
+
+    /**
+     * 获取销量最高的商品
+     * @param limit 返回数量
+     * @return 按销量降序排列的商品汇总
+     */
+    public List<ProductSales> getTopProducts(int limit) {
+        return productSalesRepository.findAllByOrderByUnitsSoldDescProductIdAsc(PageRequest.of(0, limit));
+    }
+
+    /**
+     * 获取成交订单数最多的店铺
+     * @param limit 返回数量
+     * @return 按成交订单数降序排列的店铺汇总
+     */
+    public List<ShopSales> getTopShops(int limit) {
+        return shopSalesRepository.findAllByOrderByCompletedOrdersDescShopIdAsc(PageRequest.of(0, limit));
+    }
+}
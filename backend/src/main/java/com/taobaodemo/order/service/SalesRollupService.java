@@ -0,0 +1,244 @@
+package com.taobaodemo.order.service;
+
+import com.taobaodemo.order.dto.SalesReport;
+import com.taobaodemo.order.entity.OrderMaster;
+import com.taobaodemo.order.entity.SalesRollup;
+import com.taobaodemo.order.repository.SalesRollupRepository;
+import com.taobaodemo.product.entity.Product;
+import com.taobaodemo.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * 销售汇总时间桶服务
+ * 订单完成时按商品、店铺、分类三个维度累加到当前小时桶；
+ * 定时把超过 hourly-retention-days 的小时桶压缩为天桶，超过 daily-retention-days 的天桶压缩为月桶。
+ * 报表按时间范围读取少量时间桶求和，不再扫描订单表。
+ * 只保留月粒度的历史区间按月桶起始日期归属，查询范围的起止日期在这段历史中按月对齐。
+ */
+@Service
+public class SalesRollupService {
+    private static final int COMPACTION_BATCH_SIZE = 1000;
+    private static final int DEFAULT_RANGE_DAYS = 30;
+
+    private static final Set<String> DIMENSIONS = Set.of(
+            SalesRollup.DIMENSION_PRODUCT, SalesRollup.DIMENSION_SHOP, SalesRollup.DIMENSION_CATEGORY);
+    private static final Set<String> PERIODS = Set.of("DAY", "WEEK", "MONTH");
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${sales-rollup.hourly-retention-days:2}")
+    private int hourlyRetentionDays;
+
+    @Value("${sales-rollup.daily-retention-days:400}")
+    private int dailyRetentionDays;
+
+    /**
+     * 记录一笔已完成的订单（需要在订单变为"已完成"的同一事务中调用）
+     * @param order 订单信息
+     */
+    public void recordCompleted(OrderMaster order) {
+        if (order.getProductId() == null || order.getQuantity() == null) {
+            return;
+        }
+        Timestamp hour = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+        long units = order.getQuantity();
+        BigDecimal revenue = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+
+        addToHour(SalesRollup.DIMENSION_PRODUCT, order.getProductId(), hour, units, revenue);
+        if (order.getShopId() != null) {
+            addToHour(SalesRollup.DIMENSION_SHOP, order.getShopId(), hour, units, revenue);
+        }
+        Integer categoryId = productRepository.findCategoryIdByProductId(order.getProductId());
+        if (categoryId != null) {
+            addToHour(SalesRollup.DIMENSION_CATEGORY, categoryId, hour, units, revenue);
+        }
+    }
+
+    private void addToHour(String dimension, Integer dimensionId, Timestamp hour, long units, BigDecimal revenue) {
+        salesRollupRepository.addToBucket(SalesRollup.GRANULARITY_HOUR, dimension, dimensionId, hour, units, revenue, 1);
+    }
+
+    /**
+     * 定时压缩时间桶：较早的小时桶合并为天桶，较早的天桶合并为月桶
+     * 截止时间按天/月对齐，一个天（月）的数据总是整体压缩
+     */
+    @Scheduled(cron = "${sales-rollup.compaction-cron:0 10 * * * *}")
+    public void compact() {
+        LocalDate today = LocalDate.now();
+        compact(SalesRollup.GRANULARITY_HOUR, SalesRollup.GRANULARITY_DAY,
+                today.minusDays(hourlyRetentionDays).atStartOfDay(),
+                time -> time.toLocalDate().atStartOfDay());
+        compact(SalesRollup.GRANULARITY_DAY, SalesRollup.GRANULARITY_MONTH,
+                today.minusDays(dailyRetentionDays).withDayOfMonth(1).atStartOfDay(),
+                time -> time.toLocalDate().withDayOfMonth(1).atStartOfDay());
+    }
+
+    /**
+     * 把 cutoff 之前的 from 粒度时间桶合并到 to 粒度，每批在一个事务中完成"累加 + 删除"
+     * 读取时对本批时间桶加写锁，并发压缩（多实例定时任务）会等待而不会重复累加
+     */
+    private void compact(String from, String to, LocalDateTime cutoff, UnaryOperator<LocalDateTime> truncate) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        boolean more = true;
+        while (more) {
+            more = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                List<SalesRollup> rows = salesRollupRepository.findByGranularityAndBucketStartLessThanOrderByRollupIdAsc(
+                        from, Timestamp.valueOf(cutoff), PageRequest.of(0, COMPACTION_BATCH_SIZE));
+                if (rows.isEmpty()) {
+                    return false;
+                }
+                // 同一批中落在同一个目标桶的行先在内存中合并
+                Map<String, SalesRollup> merged = new LinkedHashMap<>();
+                for (SalesRollup row : rows) {
+                    Timestamp bucketStart = Timestamp.valueOf(truncate.apply(row.getBucketStart().toLocalDateTime()));
+                    String key = row.getDimension() + "_" + row.getDimensionId() + "_" + bucketStart.getTime();
+                    SalesRollup target = merged.get(key);
+                    if (target == null) {
+                        target = new SalesRollup();
+                        target.setDimension(row.getDimension());
+                        target.setDimensionId(row.getDimensionId());
+                        target.setBucketStart(bucketStart);
+                        target.setUnits(0L);
+                        target.setRevenue(BigDecimal.ZERO);
+                        target.setOrderCount(0L);
+                        merged.put(key, target);
+                    }
+                    target.setUnits(target.getUnits() + row.getUnits());
+                    target.setRevenue(target.getRevenue().add(row.getRevenue()));
+                    target.setOrderCount(target.getOrderCount() + row.getOrderCount());
+                }
+                for (SalesRollup target : merged.values()) {
+                    salesRollupRepository.addToBucket(to, target.getDimension(), target.getDimensionId(),
+                            target.getBucketStart(), target.getUnits(), target.getRevenue(), target.getOrderCount());
+                }
+                List<Long> rollupIds = new ArrayList<>(rows.size());
+                for (SalesRollup row : rows) {
+                    rollupIds.add(row.getRollupId());
+                }
+                // 删除行数不一致说明这批时间桶已被其他压缩任务处理，回滚本批避免重复累加
+                if (salesRollupRepository.deleteByRollupIdIn(rollupIds) != rows.size()) {
+                    throw new IllegalStateException("时间桶已被并发压缩，本批回滚");
+                }
+                return rows.size() == COMPACTION_BATCH_SIZE;
+            }));
+        }
+    }
+
+    /**
+     * 获取销售报表
+     * @param dimension 统计维度：PRODUCT, SHOP, CATEGORY
+     * @param dimensionId 商品ID/店铺ID/分类ID
+     * @param startDate 开始日期 yyyy-MM-dd（可选，默认结束日期前29天）
+     * @param endDate 结束日期 yyyy-MM-dd（可选，默认今天，包含当天）
+     * @param period 分组周期：DAY, WEEK, MONTH（可选，默认DAY）
+     * @return 区间合计和分组明细
+     * @throws IllegalArgumentException 如果参数不合法
+     */
+    public SalesReport getSalesReport(String dimension, Integer dimensionId, String startDate, String endDate, String period) {
+        String normalizedDimension = dimension != null ? dimension.toUpperCase(Locale.ROOT) : null;
+        if (!DIMENSIONS.contains(normalizedDimension)) {
+            throw new IllegalArgumentException("统计维度应为PRODUCT、SHOP或CATEGORY");
+        }
+        if (dimensionId == null) {
+            throw new IllegalArgumentException("请指定统计对象ID");
+        }
+        String normalizedPeriod = period == null || period.isBlank() ? "DAY" : period.toUpperCase(Locale.ROOT);
+        if (!PERIODS.contains(normalizedPeriod)) {
+            throw new IllegalArgumentException("分组周期应为DAY、WEEK或MONTH");
+        }
+        LocalDate end = endDate == null || endDate.isEmpty() ? LocalDate.now() : parseDate(endDate);
+        LocalDate start = startDate == null || startDate.isEmpty() ? end.minusDays(DEFAULT_RANGE_DAYS - 1) : parseDate(startDate);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("开始日期不能晚于结束日期");
+        }
+
+        List<SalesRollup> buckets = salesRollupRepository
+                .findByDimensionAndDimensionIdAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                        normalizedDimension, dimensionId,
+                        Timestamp.valueOf(start.atStartOfDay()), Timestamp.valueOf(end.plusDays(1).atStartOfDay()));
+
+        SalesReport report = new SalesReport();
+        report.setDimension(normalizedDimension);
+        report.setDimensionId(dimensionId);
+        report.setPeriod(normalizedPeriod);
+        Map<LocalDate, SalesReport.Point> points = new TreeMap<>();
+        for (SalesRollup bucket : buckets) {
+            LocalDate periodStart = periodStart(bucket.getBucketStart().toLocalDateTime().toLocalDate(), normalizedPeriod);
+            SalesReport.Point point = points.computeIfAbsent(periodStart,
+                    key -> new SalesReport.Point(key, 0, BigDecimal.ZERO, 0));
+            point.setUnits(point.getUnits() + bucket.getUnits());
+            point.setRevenue(point.getRevenue().add(bucket.getRevenue()));
+            point.setOrderCount(point.getOrderCount() + bucket.getOrderCount());
+
+            report.setUnits(report.getUnits() + bucket.getUnits());
+            report.setRevenue(report.getRevenue().add(bucket.getRevenue()));
+            report.setOrderCount(report.getOrderCount() + bucket.getOrderCount());
+        }
+        report.getPoints().addAll(points.values());
+        return report;
+    }
+
+    /**
+     * 获取店铺销售报表（整店或店内单个商品）
+     * @param shopId 店铺ID
+     * @param productId 商品ID（可选，为null时统计整店）
+     * @param startDate 开始日期 yyyy-MM-dd（可选）
+     * @param endDate 结束日期 yyyy-MM-dd（可选）
+     * @param period 分组周期：DAY, WEEK, MONTH（可选）
+     * @return 区间合计和分组明细
+     * @throws IllegalArgumentException 如果商品不属于该店铺或参数不合法
+     */
+    public SalesReport getShopSalesReport(Integer shopId, Integer productId, String startDate, String endDate, String period) {
+        if (productId == null) {
+            return getSalesReport(SalesRollup.DIMENSION_SHOP, shopId, startDate, endDate, period);
+        }
+        Product product = productRepository.findById(productId).orElse(null);
+        if (product == null || !shopId.equals(product.getShopId())) {
+            throw new IllegalArgumentException("商品不存在");
+        }
+        return getSalesReport(SalesRollup.DIMENSION_PRODUCT, productId, startDate, endDate, period);
+    }
+
+    private LocalDate periodStart(LocalDate date, String period) {
+        switch (period) {
+            case "WEEK":
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case "MONTH":
+                return date.withDayOfMonth(1);
+            default:
+                return date;
+        }
+    }
+
+    private LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式应为yyyy-MM-dd");
+        }
+    }
+}
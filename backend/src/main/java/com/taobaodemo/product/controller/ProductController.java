@@ -1,11 +1,11 @@
 package com.taobaodemo.product.controller;
 
+import com.taobaodemo.common.dto.CursorPage;
 import com.taobaodemo.product.entity.Product;
 import com.taobaodemo.product.service.ProductService;
-import com.taobaodemo.shop.service.ShopService;
-import com.taobaodemo.shop.entity.Shop;
 import com.taobaodemo.common.util.ResponseUtil;
 import com.taobaodemo.common.util.SessionUtil;
+import com.taobaodemo.common.web.CurrentShopId;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -22,34 +22,70 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
-    @Autowired
-    private ShopService shopService;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 100;
 
     /**
-     * 获取所有在售商品（支持关键词、分类筛选）
+     * 分页获取在售商品（支持关键词、分类筛选）
      * @param keyword 搜索关键词（可选）
      * @param categoryId 分类ID（可选）
-     * @return 商品列表
+     * @param cursor 分页游标（可选，传上一页返回的nextCursor）
+     * @param size 每页数量（可选，默认20，最大100）
+     * @return 商品分页结果（items、nextCursor、hasMore）
      */
     @GetMapping
     public Object getAllProducts(@RequestParam(required = false) String keyword,
-                                 @RequestParam(required = false) Integer categoryId) {
-        List<Product> products;
-        if (categoryId != null) {
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                // 分类 + 关键词
-                products = productService.searchOnSaleProductsByCategory(categoryId, keyword);
+                                 @RequestParam(required = false) Integer categoryId,
+                                 @RequestParam(required = false) String cursor,
+                                 @RequestParam(required = false) Integer size) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        CursorPage<Product> page;
+        try {
+            if (categoryId != null) {
+                if (keyword != null && !keyword.trim().isEmpty()) {
+                    // 分类 + 关键词
+                    page = productService.searchOnSaleProductsByCategory(categoryId, keyword, cursor, pageSize);
+                } else {
+                    // 分类筛选
+                    page = productService.getOnSaleProductsByCategory(categoryId, cursor, pageSize);
+                }
+            } else if (keyword != null && !keyword.trim().isEmpty()) {
+                // 仅关键词
+                page = productService.searchOnSaleProducts(keyword, cursor, pageSize);
             } else {
-                // 分类筛选
-                products = productService.getOnSaleProductsByCategory(categoryId);
+                page = productService.getAllOnSaleProducts(cursor, pageSize);
             }
-        } else if (keyword != null && !keyword.trim().isEmpty()) {
-            // 仅关键词
-            products = productService.searchOnSaleProducts(keyword);
-        } else {
-            products = productService.getAllOnSaleProducts();
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.error(e.getMessage());
+        }
+        return ResponseUtil.success(page);
+    }
+
+    /**
+     * 批量获取商品卡片统计：平均评分、评价数量、库存和在售状态
+     * @param ids 商品ID列表（逗号分隔，最多100个）
+     * @return 统计列表（按请求顺序，不存在的商品不返回）
+     */
+    @GetMapping("/stats")
+    public Object getProductStats(@RequestParam List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return ResponseUtil.error("一次最多查询" + MAX_BATCH_SIZE + "个商品");
         }
-        return ResponseUtil.success(products);
+        return ResponseUtil.success(productService.getProductStats(ids));
+    }
+
+    /**
+     * 批量获取商品（购物车、订单详情使用）
+     * @param ids 商品ID列表（逗号分隔，最多100个）
+     * @return 按请求顺序的结果列表，每项包含status（ON_SALE/OFF_SALE/MISSING）和商品信息
+     */
+    @GetMapping("/batch")
+    public Object getProductsBatch(@RequestParam List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return ResponseUtil.error("一次最多查询" + MAX_BATCH_SIZE + "个商品");
+        }
+        return ResponseUtil.success(productService.getProductsBatch(ids));
     }
 
     /**
@@ -80,25 +116,15 @@ public class ProductController {
     /**
      * 添加商品（仅店铺用户）
      * @param product 商品信息
+     * @param shopId 当前店铺ID
      * @param session HTTP会话
      * @return 保存后的商品信息或错误提示
      */
-    /**
-     * 获取当前登录用户的店铺ID
-     * @param session HTTP会话
-     * @return 店铺ID，如果不存在则返回null
-     */
-    private Integer getCurrentShopId(HttpSession session) {
-        Shop shop = shopService.getShopByUserId(SessionUtil.getCurrentUser(session).getUserId()).orElse(null);
-        return shop != null ? shop.getShopId() : null;
-    }
-
     @PostMapping
-    public Object addProduct(@RequestBody Product product, HttpSession session) {
+    public Object addProduct(@RequestBody Product product, @CurrentShopId Integer shopId, HttpSession session) {
         if (!SessionUtil.isShopUser(session)) {
             return ResponseUtil.noPermission();
         }
-        Integer shopId = getCurrentShopId(session);
         if (shopId == null) {
             return ResponseUtil.error("店铺不存在");
         }
@@ -115,11 +141,13 @@ public class ProductController {
      * 更新商品信息（仅店铺用户，且只能更新自己店铺的商品）
      * @param id 商品ID
      * @param product 更新的商品信息
+     * @param shopId 当前店铺ID
      * @param session HTTP会话
      * @return 更新后的商品信息或错误提示
      */
     @PutMapping("/{id}")
-    public Object updateProduct(@PathVariable Integer id, @RequestBody Product product, HttpSession session) {
+    public Object updateProduct(@PathVariable Integer id, @RequestBody Product product,
+                                @CurrentShopId Integer shopId, HttpSession session) {
         if (!SessionUtil.isShopUser(session)) {
             return ResponseUtil.noPermission();
         }
@@ -127,7 +155,6 @@ public class ProductController {
         if (existing == null) {
             return ResponseUtil.error("商品不存在");
         }
-        Integer shopId = getCurrentShopId(session);
         if (shopId == null) {
             return ResponseUtil.error("店铺不存在");
         }
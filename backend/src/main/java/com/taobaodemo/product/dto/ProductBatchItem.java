@@ -0,0 +1,23 @@
+package com.taobaodemo.product.dto;
+
+import com.taobaodemo.product.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量获取商品的单项结果
+ * 商品不存在时product为null；已下架（或店铺已删除）的商品仍返回商品信息，供购物车展示
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchItem {
+    public static final String STATUS_ON_SALE = "ON_SALE";
+    public static final String STATUS_OFF_SALE = "OFF_SALE";
+    public static final String STATUS_MISSING = "MISSING";
+
+    private Integer productId; // 请求的商品ID
+    private String status;     // ON_SALE, OFF_SALE, MISSING
+    private Product product;   // 商品信息
+}
@@ -0,0 +1,15 @@
+package com.taobaodemo.product.dto;
+
+import lombok.Data;
+
+/**
+ * 商品卡片统计（列表页批量获取）
+ */
+@Data
+public class ProductStats {
+    private Integer productId;    // 商品ID
+    private double averageRating; // 平均评分（无评价为0）
+    private long reviewCount;     // 评价数量
+    private Integer stock;        // 当前可用库存
+    private boolean onSale;       // 是否在售（已下架或店铺已删除为false）
+}
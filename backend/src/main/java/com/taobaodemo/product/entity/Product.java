@@ -3,6 +3,7 @@ package com.taobaodemo.product.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 
 /**
  * 商品实体类
@@ -40,5 +41,8 @@ public class Product {
 
     @Column(name = "category_id", nullable = false)
     private Integer categoryId; // 分类ID
+
+    @Column(name = "updated_at", nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    private Timestamp updatedAt; // 商品信息最后修改时间（新增、修改、下架时设置，库存变化不更新；用于搜索索引增量刷新）
 }
 
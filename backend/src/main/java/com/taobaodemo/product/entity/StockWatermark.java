@@ -0,0 +1,21 @@
+package com.taobaodemo.product.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 热门商品库存回写水位线实体类
+ * 对应数据库stock_watermark表，记录内存库存已回写到product.stock的最大订单ID，
+ * 与库存回写在同一事务中更新；启动时据此补扣水位线之后的订单
+ */
+@Entity
+@Table(name = "stock_watermark")
+@Data
+public class StockWatermark {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "flushed_order_id", nullable = false)
+    private Integer flushedOrderId = 0; // 已回写的最大订单ID
+}
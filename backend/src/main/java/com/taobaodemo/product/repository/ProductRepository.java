@@ -1,23 +1,81 @@
 package com.taobaodemo.product.repository;
 
 import com.taobaodemo.product.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
     List<Product> findByShopIdOrderByProductIdDesc(Integer shopId);
-    List<Product> findByIsOnSaleTrueOrderByProductIdDesc();
-    List<Product> findByIsOnSaleTrueAndCategoryIdOrderByProductIdDesc(Integer categoryId);
+    List<Product> findTop1000ByIsOnSaleTrueAndProductIdGreaterThanOrderByProductIdAsc(Integer productId); // 分批加载搜索索引
 
-    @Query("SELECT p FROM Product p WHERE p.isOnSale = true AND (p.name LIKE %:keyword% OR p.description LIKE %:keyword%) ORDER BY p.productId DESC")
-    List<Product> searchProducts(@Param("keyword") String keyword);
+    // 搜索索引增量刷新：按 (修改时间, 商品ID) 游标分批读取之后修改过的商品（含已下架）
+    @Query("SELECT p FROM Product p WHERE p.updatedAt > :cursorTime OR (p.updatedAt = :cursorTime AND p.productId > :cursorId) " +
+           "ORDER BY p.updatedAt ASC, p.productId ASC")
+    List<Product> findModifiedAfter(@Param("cursorTime") Timestamp cursorTime, @Param("cursorId") Integer cursorId, Pageable pageable);
 
-    @Query("SELECT p FROM Product p WHERE p.isOnSale = true AND p.categoryId = :categoryId AND (p.name LIKE %:keyword% OR p.description LIKE %:keyword%) ORDER BY p.productId DESC")
-    List<Product> searchProductsByCategory(@Param("categoryId") Integer categoryId, @Param("keyword") String keyword);
+    @Query("SELECT MAX(p.updatedAt) FROM Product p")
+    Timestamp findMaxUpdatedAt();
+
+    // 条件扣减库存：库存不足时不更新，返回受影响行数（0表示扣减失败）
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.productId = :productId AND p.stock >= :quantity")
+    int deductStock(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    // 原子增加库存（取消订单时恢复库存）
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.productId = :productId")
+    int restoreStock(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    // 按净扣减量调整库存（热门商品内存库存回写，delta为负表示增加），库存不足时不更新，返回受影响行数
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :delta WHERE p.productId = :productId AND p.stock >= :delta")
+    int applyStockDelta(@Param("productId") Integer productId, @Param("delta") Integer delta);
+
+    // 库存清零（回写时数据库库存不足以扣减，差额另行上报）
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = 0 WHERE p.productId = :productId")
+    int clearStock(@Param("productId") Integer productId);
+
+    // 直接读取数据库中的库存（不经过持久化上下文缓存）
+    @Query("SELECT p.stock FROM Product p WHERE p.productId = :productId")
+    Integer findStockByProductId(@Param("productId") Integer productId);
+
+    @Query("SELECT p.categoryId FROM Product p WHERE p.productId = :productId")
+    Integer findCategoryIdByProductId(@Param("productId") Integer productId);
+
+    // 批量读取商品及所属店铺是否已删除（一次IN查询）：[商品, 店铺是否已删除]
+    @Query("SELECT p, s.isDeleted FROM Product p LEFT JOIN Shop s ON s.shopId = p.shopId WHERE p.productId IN :productIds")
+    List<Object[]> findWithShopStatus(@Param("productIds") Collection<Integer> productIds);
+
+    // 批量读取库存和在售状态（一次IN查询）：[商品ID, 库存, 是否上架, 店铺是否已删除]
+    @Query("SELECT p.productId, p.stock, p.isOnSale, s.isDeleted FROM Product p LEFT JOIN Shop s ON s.shopId = p.shopId " +
+           "WHERE p.productId IN :productIds")
+    List<Object[]> findStockAndSaleStatus(@Param("productIds") Collection<Integer> productIds);
+
+    // 以下在售商品查询都通过 JOIN shop 排除已删除店铺的商品，一次查询完成过滤
+    // 游标分页：只返回商品ID小于游标的数据，数量由pageable限制
+    @Query("SELECT p FROM Product p JOIN Shop s ON s.shopId = p.shopId WHERE s.isDeleted = false AND p.isOnSale = true AND p.productId < :cursor ORDER BY p.productId DESC")
+    List<Product> findOnSalePage(@Param("cursor") Integer cursor, Pageable pageable);
+
+    @Query("SELECT p FROM Product p JOIN Shop s ON s.shopId = p.shopId WHERE s.isDeleted = false AND p.isOnSale = true AND p.categoryId = :categoryId AND p.productId < :cursor ORDER BY p.productId DESC")
+    List<Product> findOnSalePageByCategory(@Param("categoryId") Integer categoryId, @Param("cursor") Integer cursor, Pageable pageable);
+
+    @Query("SELECT p FROM Product p JOIN Shop s ON s.shopId = p.shopId WHERE s.isDeleted = false AND p.isOnSale = true AND p.productId < :cursor AND (p.name LIKE %:keyword% OR p.description LIKE %:keyword%) ORDER BY p.productId DESC")
+    List<Product> searchProducts(@Param("keyword") String keyword, @Param("cursor") Integer cursor, Pageable pageable);
+
+    @Query("SELECT p FROM Product p JOIN Shop s ON s.shopId = p.shopId WHERE s.isDeleted = false AND p.isOnSale = true AND p.categoryId = :categoryId AND p.productId < :cursor AND (p.name LIKE %:keyword% OR p.description LIKE %:keyword%) ORDER BY p.productId DESC")
+    List<Product> searchProductsByCategory(@Param("categoryId") Integer categoryId, @Param("keyword") String keyword, @Param("cursor") Integer cursor, Pageable pageable);
+
+    @Query("SELECT p FROM Product p JOIN Shop s ON s.shopId = p.shopId WHERE s.isDeleted = false AND p.isOnSale = true AND p.productId IN :productIds")
+    List<Product> findOnSaleByProductIdIn(@Param("productIds") Collection<Integer> productIds);
 }
 
@@ -0,0 +1,17 @@
+package com.taobaodemo.product.repository;
+
+import com.taobaodemo.product.entity.StockWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockWatermarkRepository extends JpaRepository<StockWatermark, Integer> {
+    // 推进水位线（只增不减），不存在时插入
+    @Modifying
+    @Query(value = "INSERT INTO stock_watermark (product_id, flushed_order_id) VALUES (:productId, :orderId) " +
+                   "ON DUPLICATE KEY UPDATE flushed_order_id = GREATEST(flushed_order_id, :orderId)", nativeQuery = true)
+    void advance(@Param("productId") Integer productId, @Param("orderId") Integer orderId);
+}
@@ -0,0 +1,465 @@
+package com.taobaodemo.product.service;
+
+import com.taobaodemo.common.metrics.BusinessMetrics;
+import com.taobaodemo.order.entity.OrderMaster;
+import com.taobaodemo.order.repository.OrderMasterRepository;
+import com.taobaodemo.product.entity.StockWatermark;
+import com.taobaodemo.product.repository.ProductRepository;
+import com.taobaodemo.product.repository.StockWatermarkRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 库存预占服务
+ * 热门商品（配置 inventory.hot-product-ids）的可用库存保存在内存分段计数器中，
+ * 下单预占只做CAS、不访问数据库，净变化量定时批量回写 product.stock；
+ * 回写时在同一事务中把水位线（stock_watermark）推进到已计入的最大订单ID，
+ * 启动时先补扣水位线之后未取消订单的数量，再以数据库库存为准加载，关闭前回写剩余变化量。
+ * 回写使用条件扣减，数据库库存不足时清零并上报缺口（inventory.shortfall），不会写成负数。
+ * 内存计数器只在本进程内有效，只支持单节点部署，auth.mode=token（多节点）时拒绝启用。
+ * 普通商品仍然使用数据库条件扣减。
+ */
+@Service
+public class InventoryReservationService {
+    // 分段之间间隔16个int（64字节），避免不同分段落在同一缓存行
+    private static final int STRIPE_PADDING = 16;
+
+    private static final String DEDUCT_STOCK_SQL =
+            "UPDATE product SET stock = stock - ? WHERE product_id = ? AND stock >= ?";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockWatermarkRepository stockWatermarkRepository;
+
+    @Autowired
+    private OrderMasterRepository orderMasterRepository;
+
+    @Autowired
+    private BusinessMetrics businessMetrics;
+
+    @Value("${auth.mode:session}")
+    private String authMode;
+
+    @Value("${inventory.hot-product-ids:}")
+    private String hotProductIds;
+
+    @Value("${inventory.stripes:16}")
+    private int stripeCount;
+
+    private final Map<Integer, StripedStock> hotStocks = new ConcurrentHashMap<>();
+
+    /**
+     * 分段库存计数器
+     * 每个分段独立CAS，单个分段不够时在锁内合并所有分段再分配
+     */
+    private static class StripedStock {
+        private final int stripes;
+        private final AtomicIntegerArray counters;
+        // 尚未回写数据库的净扣减量（正数表示数据库需要再减去的数量）
+        private final LongAdder pendingDelta = new LongAdder();
+        // 已保存的最大订单ID，回写时作为水位线
+        private final AtomicInteger maxOrderId;
+        // 已写入数据库的水位线（在锁内读写）
+        private int flushedOrderId;
+
+        StripedStock(int stripes, int available, int flushedOrderId) {
+            this.stripes = stripes;
+            this.maxOrderId = new AtomicInteger(flushedOrderId);
+            this.flushedOrderId = flushedOrderId;
+            this.counters = new AtomicIntegerArray(stripes * STRIPE_PADDING);
+            spread(available);
+        }
+
+        boolean tryAcquire(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripes);
+            for (int i = 0; i < stripes; i++) {
+                int index = ((start + i) % stripes) * STRIPE_PADDING;
+                int current = counters.get(index);
+                while (current >= quantity) {
+                    if (counters.compareAndSet(index, current, current - quantity)) {
+                        return true;
+                    }
+                    current = counters.get(index);
+                }
+            }
+            return acquireSlow(quantity);
+        }
+
+        /**
+         * 各分段都不够时，合并所有分段后再判断（总量够就不会误判失败）
+         */
+        private synchronized boolean acquireSlow(int quantity) {
+            int total = drain();
+            boolean acquired = total >= quantity;
+            spread(acquired ? total - quantity : total);
+            return acquired;
+        }
+
+        void release(int quantity) {
+            int index = ThreadLocalRandom.current().nextInt(stripes) * STRIPE_PADDING;
+            counters.addAndGet(index, quantity);
+        }
+
+        synchronized void reset(int available) {
+            drain();
+            spread(available);
+        }
+
+        int available() {
+            int total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += counters.get(i * STRIPE_PADDING);
+            }
+            return total;
+        }
+
+        private int drain() {
+            int total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += counters.getAndSet(i * STRIPE_PADDING, 0);
+            }
+            return total;
+        }
+
+        private void spread(int available) {
+            int share = Math.max(available, 0) / stripes;
+            int remainder = Math.max(available, 0) % stripes;
+            for (int i = 0; i < stripes; i++) {
+                counters.addAndGet(i * STRIPE_PADDING, share + (i < remainder ? 1 : 0));
+            }
+        }
+    }
+
+    /**
+     * 启动时补扣上次未回写的订单，再以数据库库存为准加载热门商品
+     * 留有水位线的商品都要补扣（包括已不再配置为热门的商品），不再是热门的商品补扣后删除水位线
+     */
+    @PostConstruct
+    public void init() {
+        Set<Integer> productIds = new LinkedHashSet<>();
+        if (hotProductIds != null) {
+            for (String id : hotProductIds.split(",")) {
+                if (!id.isBlank()) {
+                    productIds.add(Integer.valueOf(id.trim()));
+                }
+            }
+        }
+        if (!productIds.isEmpty() && "token".equalsIgnoreCase(authMode)) {
+            throw new IllegalStateException("热门商品内存库存只支持单节点部署，auth.mode=token 时不能配置 inventory.hot-product-ids");
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (StockWatermark watermark : stockWatermarkRepository.findAll()) {
+            Integer productId = watermark.getProductId();
+            Integer shortfall = transactionTemplate.execute(status -> {
+                int missing = reconcile(productId, watermark.getFlushedOrderId());
+                if (!productIds.contains(productId)) {
+                    stockWatermarkRepository.deleteById(productId);
+                }
+                return missing;
+            });
+            if (shortfall != null && shortfall > 0) {
+                businessMetrics.recordStockShortfall(productId, shortfall);
+            }
+        }
+        for (Integer productId : productIds) {
+            StripedStock stock = transactionTemplate.execute(status -> loadHotStock(productId));
+            if (stock != null) {
+                hotStocks.put(productId, stock);
+            }
+        }
+    }
+
+    /**
+     * 补扣水位线之后未取消订单的数量（上次退出前未回写的预占）
+     * @return 数据库库存不足的件数
+     */
+    private int reconcile(Integer productId, int flushedOrderId) {
+        Object[] row = orderMasterRepository.sumQuantityAfter(productId, flushedOrderId, OrderMaster.STATUS_CANCELLED).get(0);
+        if (row[1] == null) {
+            return 0;
+        }
+        return writeBack(productId, ((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+    }
+
+    private StripedStock loadHotStock(Integer productId) {
+        Integer stock = productRepository.findStockByProductId(productId);
+        if (stock == null) {
+            return null;
+        }
+        StockWatermark watermark = stockWatermarkRepository.findById(productId).orElse(null);
+        int flushedOrderId;
+        if (watermark != null) {
+            flushedOrderId = watermark.getFlushedOrderId();
+        } else {
+            // 新配置的热门商品：已有订单都已按普通商品扣减过数据库库存
+            Integer maxOrderId = orderMasterRepository.findMaxOrderIdByProductId(productId);
+            flushedOrderId = maxOrderId != null ? maxOrderId : 0;
+            stockWatermarkRepository.advance(productId, flushedOrderId);
+        }
+        return new StripedStock(Math.max(stripeCount, 1), stock, flushedOrderId);
+    }
+
+    /**
+     * 是否为内存库存管理的热门商品
+     * @param productId 商品ID
+     */
+    public boolean isHotProduct(Integer productId) {
+        return hotStock(productId) != null;
+    }
+
+    private StripedStock hotStock(Integer productId) {
+        return productId != null ? hotStocks.get(productId) : null;
+    }
+
+    /**
+     * 预占库存
+     * 热门商品在内存中扣减，所在事务回滚时自动归还；普通商品直接条件扣减数据库库存
+     * @param productId 商品ID
+     * @param quantity 数量
+     * @return 预占成功返回true，库存不足返回false
+     */
+    public boolean reserve(Integer productId, int quantity) {
+        StripedStock stock = hotStock(productId);
+        if (stock == null) {
+            return productRepository.deductStock(productId, quantity) > 0;
+        }
+        // 先记待回写量再扣减，重新加载时只会低估可用库存而不会超卖
+        stock.pendingDelta.add(quantity);
+        if (!stock.tryAcquire(quantity)) {
+            stock.pendingDelta.add(-quantity);
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        releaseHot(stock, quantity);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * 批量预占库存
+     * 热门商品逐个在内存中预占；其余商品的条件扣减作为一个JDBC批次发送，按受影响行数判断是否成功。
+     * 返回失败时已预占的部分不会自动归还，调用方需要抛异常让所在事务回滚。
+     * @param quantities 商品ID -> 数量（按商品ID排序，保证加锁顺序一致）
+     * @return 库存不足的商品ID，全部成功返回null
+     */
+    public Integer reserveAll(Map<Integer, Integer> quantities) {
+        List<Map.Entry<Integer, Integer>> coldItems = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            if (isHotProduct(entry.getKey())) {
+                if (!reserve(entry.getKey(), entry.getValue())) {
+                    return entry.getKey();
+                }
+            } else {
+                coldItems.add(entry);
+            }
+        }
+        if (coldItems.isEmpty()) {
+            return null;
+        }
+        int[] updateCounts = jdbcTemplate.batchUpdate(DEDUCT_STOCK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Integer, Integer> item = coldItems.get(i);
+                ps.setInt(1, item.getValue());
+                ps.setInt(2, item.getKey());
+                ps.setInt(3, item.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return coldItems.size();
+            }
+        });
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                return coldItems.get(i).getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 归还库存（取消订单、支付超时）
+     * 热门商品在所在事务提交后归还到内存；普通商品直接增加数据库库存
+     * @param productId 商品ID
+     * @param quantity 数量
+     */
+    public void release(Integer productId, int quantity) {
+        StripedStock stock = hotStock(productId);
+        if (stock == null) {
+            productRepository.restoreStock(productId, quantity);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseHot(stock, quantity);
+                }
+            });
+        } else {
+            releaseHot(stock, quantity);
+        }
+    }
+
+    private void releaseHot(StripedStock stock, int quantity) {
+        stock.release(quantity);
+        stock.pendingDelta.add(-quantity);
+    }
+
+    /**
+     * 记录已保存的订单ID（在saveAll之后调用），热门商品下次回写时把水位线推进到这些订单
+     * @param orders 已分配ID的订单
+     */
+    public void recordOrders(Collection<OrderMaster> orders) {
+        for (OrderMaster order : orders) {
+            StripedStock stock = hotStock(order.getProductId());
+            if (stock != null && order.getOrderId() != null) {
+                stock.maxOrderId.accumulateAndGet(order.getOrderId(), Math::max);
+            }
+        }
+    }
+
+    /**
+     * 获取热门商品当前可用库存（普通商品返回null）
+     * @param productId 商品ID
+     */
+    public Integer getAvailable(Integer productId) {
+        StripedStock stock = hotStock(productId);
+        return stock != null ? stock.available() : null;
+    }
+
+    /**
+     * 店铺修改库存后，以数据库为准重新加载热门商品的内存库存
+     * @param productId 商品ID
+     */
+    public void reload(Integer productId) {
+        StripedStock stock = hotStock(productId);
+        if (stock == null) {
+            return;
+        }
+        synchronized (stock) {
+            reloadLocked(productId, stock);
+        }
+    }
+
+    private void reloadLocked(Integer productId, StripedStock stock) {
+        Integer dbStock = productRepository.findStockByProductId(productId);
+        if (dbStock != null) {
+            stock.reset(dbStock - stock.pendingDelta.intValue());
+        }
+    }
+
+    /**
+     * 定时把热门商品的净变化量批量回写数据库
+     */
+    @Scheduled(fixedDelayString = "${inventory.flush-interval-ms:200}")
+    public void flush() {
+        for (Integer productId : hotStocks.keySet()) {
+            try {
+                flush(productId);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 回写单个热门商品的净变化量和水位线（与reload互斥，回写失败时保留变化量下次重试）
+     * 数据库库存不足时清零并上报缺口，再以数据库为准重新加载内存库存
+     * @param productId 商品ID
+     */
+    public void flush(Integer productId) {
+        StripedStock stock = hotStock(productId);
+        if (stock == null) {
+            return;
+        }
+        synchronized (stock) {
+            // 先读水位线再取变化量：水位线内的订单都在记录ID之前完成了预占，一定已计入变化量
+            int orderId = stock.maxOrderId.get();
+            long delta = stock.pendingDelta.sumThenReset();
+            if (delta == 0 && orderId <= stock.flushedOrderId) {
+                return;
+            }
+            Integer shortfall;
+            try {
+                shortfall = new TransactionTemplate(transactionManager).execute(
+                        status -> writeBack(productId, (int) delta, orderId));
+            } catch (RuntimeException e) {
+                stock.pendingDelta.add(delta);
+                throw e;
+            }
+            stock.flushedOrderId = Math.max(stock.flushedOrderId, orderId);
+            if (shortfall != null && shortfall > 0) {
+                businessMetrics.recordStockShortfall(productId, shortfall);
+                reloadLocked(productId, stock);
+            }
+        }
+    }
+
+    /**
+     * 在当前事务中条件扣减库存并推进水位线
+     * @return 数据库库存不足的件数（此时库存已清零）
+     */
+    private int writeBack(Integer productId, int delta, int orderId) {
+        int shortfall = 0;
+        if (delta != 0 && productRepository.applyStockDelta(productId, delta) == 0) {
+            Integer current = productRepository.findStockByProductId(productId);
+            if (current != null) {
+                shortfall = delta - Math.max(current, 0);
+                productRepository.clearStock(productId);
+            }
+        }
+        if (orderId > 0) {
+            stockWatermarkRepository.advance(productId, orderId);
+        }
+        return shortfall;
+    }
+
+    /**
+     * 应用关闭前回写剩余变化量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,467 @@
+package com.taobaodemo.product.service;
+
+import com.taobaodemo.product.entity.Product;
+import com.taobaodemo.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品搜索索引
+ * 在内存中维护在售商品名称、描述的n-gram倒排索引（单字 + 双字，适合中文），
+ * 替代 LIKE %keyword% 的全表扫描，并按相关度排序返回商品ID。
+ * 本节点的修改实时更新索引；其他节点的修改由定时增量刷新按 product.updated_at 读取
+ * （只在新增、修改、下架商品时设置，下单扣减库存不会触发重新索引），
+ * 每次回看 REFRESH_OVERLAP_MILLIS，覆盖提交晚于修改时间的事务和节点间的时钟偏差。
+ */
+@Component
+public class ProductSearchIndex {
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final long REFRESH_OVERLAP_MILLIS = 60 * 1000L;
+
+    // 相关度权重：名称命中 > 描述命中，名称包含完整关键词额外加分
+    private static final int NAME_GRAM_WEIGHT = 3;
+    private static final int DESCRIPTION_GRAM_WEIGHT = 1;
+    private static final int NAME_PHRASE_BONUS = 10;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // gram -> 名称/描述倒排列表，每个gram的字符串只保存一份
+    private final Map<String, GramPostings> index = new HashMap<>();
+    private final Map<Integer, IndexedProduct> documents = new HashMap<>();
+    // 加载期间被实时新增、更新或移除过的商品ID，加载时跳过（以实时数据为准），加载完成后清空
+    private final Set<Integer> touchedDuringLoad = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+    // 增量刷新已读取到的最大修改时间
+    private Timestamp refreshedUpTo = new Timestamp(0);
+
+    /**
+     * 已建索引的商品
+     * 不保存gram集合，移除时由规范化后的文本重新计算gram
+     */
+    private static class IndexedProduct {
+        final Integer productId;
+        final Integer categoryId;
+        final String normalizedName;
+        final String normalizedDescription;
+
+        IndexedProduct(Product product) {
+            this.productId = product.getProductId();
+            this.categoryId = product.getCategoryId();
+            this.normalizedName = normalize(product.getName());
+            this.normalizedDescription = normalize(product.getDescription());
+        }
+    }
+
+    /**
+     * 一个gram在名称和描述中的倒排列表
+     */
+    private static class GramPostings {
+        final Postings name = new Postings();
+        final Postings description = new Postings();
+
+        int size() {
+            return name.size() + description.size();
+        }
+    }
+
+    /**
+     * 倒排列表：升序排列的商品ID（原始int数组，没有装箱和哈希节点的开销）
+     * 全量加载按商品ID升序进行，新增基本都是追加到末尾
+     */
+    private static class Postings {
+        private static final int[] NO_IDS = new int[0];
+
+        private int[] ids = NO_IDS;
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int i) {
+            return ids[i];
+        }
+
+        boolean contains(int productId) {
+            return Arrays.binarySearch(ids, 0, size, productId) >= 0;
+        }
+
+        void add(int productId) {
+            int pos = size;
+            if (size > 0 && ids[size - 1] >= productId) {
+                pos = Arrays.binarySearch(ids, 0, size, productId);
+                if (pos >= 0) {
+                    return;
+                }
+                pos = -pos - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(2, size + (size >> 1)));
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = productId;
+            size++;
+        }
+
+        void remove(int productId) {
+            int pos = Arrays.binarySearch(ids, 0, size, productId);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            // 大量删除后收缩数组
+            if (ids.length > 8 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+
+    /**
+     * 搜索命中结果，排序规则：相关度降序，相同相关度按商品ID降序
+     */
+    public static class SearchHit {
+        static final Comparator<SearchHit> ORDER = Comparator
+                .comparingInt(SearchHit::getScore).reversed()
+                .thenComparing(Comparator.comparingInt(SearchHit::getProductId).reversed());
+
+        private final int productId;
+        private final int score;
+
+        public SearchHit(int productId, int score) {
+            this.productId = productId;
+            this.score = score;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * 是否排在指定位置之后（用于游标分页）
+         */
+        public boolean isAfter(int score, int productId) {
+            return this.score < score || (this.score == score && this.productId < productId);
+        }
+
+        /**
+         * 是否排在指定位置之前
+         */
+        public boolean isBefore(int score, int productId) {
+            return this.score > score || (this.score == score && this.productId > productId);
+        }
+    }
+
+    /**
+     * 应用启动完成后分批加载所有在售商品，加载完成前搜索回退到数据库查询
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // 加载期间的修改由之后的增量刷新补上
+        Timestamp loadStart = productRepository.findMaxUpdatedAt();
+        Integer lastProductId = 0;
+        while (true) {
+            List<Product> batch = productRepository
+                    .findTop1000ByIsOnSaleTrueAndProductIdGreaterThanOrderByProductIdAsc(lastProductId);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lock.writeLock().lock();
+            try {
+                for (Product product : batch) {
+                    // 加载期间已被实时更新或移除过的商品以实时数据为准（批次可能是更新前读取的旧数据）
+                    if (!touchedDuringLoad.contains(product.getProductId())
+                            && !documents.containsKey(product.getProductId())) {
+                        add(new IndexedProduct(product));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastProductId = batch.get(batch.size() - 1).getProductId();
+            if (batch.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (loadStart != null) {
+                refreshedUpTo = loadStart;
+            }
+            ready = true;
+            touchedDuringLoad.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 定时增量刷新：重新索引上次刷新以来修改过的商品（包括其他节点的新增、修改和下架）
+     */
+    @Scheduled(fixedDelayString = "${search.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        if (!ready) {
+            return;
+        }
+        Timestamp cursorTime = new Timestamp(refreshedUpTo.getTime() - REFRESH_OVERLAP_MILLIS);
+        Integer cursorId = 0;
+        while (true) {
+            List<Product> batch = productRepository.findModifiedAfter(cursorTime, cursorId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (Product product : batch) {
+                index(product);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            Product last = batch.get(batch.size() - 1);
+            cursorTime = last.getUpdatedAt();
+            cursorId = last.getProductId();
+            if (cursorTime.after(refreshedUpTo)) {
+                refreshedUpTo = cursorTime;
+            }
+            if (batch.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 索引是否已加载完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 新增或更新商品的索引（下架商品会从索引中移除）
+     * @param product 商品信息
+     */
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(product.getIsOnSale())) {
+            remove(product.getProductId());
+            return;
+        }
+        IndexedProduct document = new IndexedProduct(product);
+        lock.writeLock().lock();
+        try {
+            markTouched(product.getProductId());
+            removeInternal(product.getProductId());
+            add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从索引中移除商品
+     * @param productId 商品ID
+     */
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            markTouched(productId);
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 加载完成前记录实时变更的商品（需持有写锁）
+    private void markTouched(Integer productId) {
+        if (!ready) {
+            touchedDuringLoad.add(productId);
+        }
+    }
+
+    /**
+     * 搜索商品
+     * 关键词按空白拆分为多个词，所有词的n-gram都必须命中（名称或描述）
+     * 扫描候选时只保留排在游标之后的前 limit 条（有界堆），不对全部命中结果排序
+     * @param keyword 搜索关键词
+     * @param categoryId 分类ID（可选，为null时不限分类）
+     * @param after 上一页最后一条命中（可选，为null时从第一条开始）
+     * @param limit 最多返回条数
+     * @return 按相关度降序、商品ID降序排列的命中结果
+     */
+    public List<SearchHit> search(String keyword, Integer categoryId, SearchHit after, int limit) {
+        String normalizedKeyword = normalize(keyword).trim();
+        Set<String> grams = queryGrams(normalizedKeyword);
+        if (grams.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            // 从最稀有的gram的倒排列表取候选，其余gram逐个校验
+            List<GramPostings> postings = new ArrayList<>();
+            for (String gram : grams) {
+                GramPostings gramPostings = index.get(gram);
+                if (gramPostings == null) {
+                    return Collections.emptyList();
+                }
+                postings.add(gramPostings);
+            }
+            postings.sort(Comparator.comparingInt(GramPostings::size));
+            Postings rarestName = postings.get(0).name;
+            Postings rarestDescription = postings.get(0).description;
+
+            // 堆顶是当前保留结果中排名最靠后的一条
+            PriorityQueue<SearchHit> top = new PriorityQueue<>(limit + 1, SearchHit.ORDER.reversed());
+            int i = 0;
+            int j = 0;
+            while (i < rarestName.size() || j < rarestDescription.size()) {
+                // 合并两个升序列表，同一商品只处理一次
+                int productId;
+                if (j >= rarestDescription.size()
+                        || (i < rarestName.size() && rarestName.get(i) <= rarestDescription.get(j))) {
+                    productId = rarestName.get(i++);
+                    if (j < rarestDescription.size() && rarestDescription.get(j) == productId) {
+                        j++;
+                    }
+                } else {
+                    productId = rarestDescription.get(j++);
+                }
+
+                IndexedProduct document = documents.get(productId);
+                if (document == null || (categoryId != null && !categoryId.equals(document.categoryId))) {
+                    continue;
+                }
+                int score = score(document, postings, normalizedKeyword);
+                if (score == 0 || (after != null && !after.isBefore(score, productId))) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(new SearchHit(productId, score));
+                } else if (top.peek().isAfter(score, productId)) {
+                    top.poll();
+                    top.add(new SearchHit(productId, score));
+                }
+            }
+
+            List<SearchHit> result = new ArrayList<>(top);
+            result.sort(SearchHit.ORDER);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 根据倒排列表计算相关度，任意一个gram未命中返回0
+     */
+    private int score(IndexedProduct document, List<GramPostings> postings, String normalizedKeyword) {
+        int score = 0;
+        for (GramPostings gramPostings : postings) {
+            if (gramPostings.name.contains(document.productId)) {
+                score += NAME_GRAM_WEIGHT;
+            } else if (gramPostings.description.contains(document.productId)) {
+                score += DESCRIPTION_GRAM_WEIGHT;
+            } else {
+                return 0;
+            }
+        }
+        if (document.normalizedName.contains(normalizedKeyword)) {
+            score += NAME_PHRASE_BONUS;
+        }
+        return score;
+    }
+
+    private void add(IndexedProduct document) {
+        documents.put(document.productId, document);
+        for (String gram : documentGrams(document.normalizedName)) {
+            index.computeIfAbsent(gram, k -> new GramPostings()).name.add(document.productId);
+        }
+        for (String gram : documentGrams(document.normalizedDescription)) {
+            index.computeIfAbsent(gram, k -> new GramPostings()).description.add(document.productId);
+        }
+    }
+
+    private void removeInternal(Integer productId) {
+        IndexedProduct document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        for (String gram : documentGrams(document.normalizedName)) {
+            GramPostings gramPostings = index.get(gram);
+            if (gramPostings != null) {
+                gramPostings.name.remove(productId);
+                removeIfEmpty(gram, gramPostings);
+            }
+        }
+        for (String gram : documentGrams(document.normalizedDescription)) {
+            GramPostings gramPostings = index.get(gram);
+            if (gramPostings != null) {
+                gramPostings.description.remove(productId);
+                removeIfEmpty(gram, gramPostings);
+            }
+        }
+    }
+
+    private void removeIfEmpty(String gram, GramPostings gramPostings) {
+        if (gramPostings.size() == 0) {
+            index.remove(gram);
+        }
+    }
+
+    /**
+     * 统一文本格式：全角转半角、转小写
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 文档gram：每个词的单字和双字
+     */
+    private static Set<String> documentGrams(String normalizedText) {
+        Set<String> grams = new HashSet<>();
+        for (String term : normalizedText.split("\\s+")) {
+            for (int i = 0; i < term.length(); i++) {
+                grams.add(term.substring(i, i + 1));
+                if (i + 1 < term.length()) {
+                    grams.add(term.substring(i, i + 2));
+                }
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 查询gram：单字词用单字，其余用双字
+     */
+    private static Set<String> queryGrams(String normalizedKeyword) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String term : normalizedKeyword.split("\\s+")) {
+            if (term.length() == 1) {
+                grams.add(term);
+            }
+            for (int i = 0; i + 1 < term.length(); i++) {
+                grams.add(term.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+}
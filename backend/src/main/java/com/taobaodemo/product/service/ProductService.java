@@ -1,14 +1,25 @@
 package com.taobaodemo.product.service;
 
+import com.taobaodemo.common.dto.CursorPage;
+import com.taobaodemo.product.dto.ProductBatchItem;
+import com.taobaodemo.product.dto.ProductStats;
 import com.taobaodemo.product.entity.Product;
 import com.taobaodemo.product.repository.ProductRepository;
+import com.taobaodemo.review.entity.ProductRating;
+import com.taobaodemo.review.service.ReviewService;
 import com.taobaodemo.shop.repository.ShopRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -17,12 +28,26 @@ import java.util.Optional;
  */
 @Service
 public class ProductService {
+    // 游标带类型前缀：按商品ID翻页为"i:商品ID"，按搜索索引相关度翻页为"s:相关度_商品ID"
+    // 索引加载前后两种查询路径会切换，收到另一种格式的游标时从第一页重新开始
+    private static final String ID_CURSOR_PREFIX = "i:";
+    private static final String SCORE_CURSOR_PREFIX = "s:";
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private ShopRepository shopRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    @Autowired
+    private ReviewService reviewService;
+
     /**
      * 验证商品信息（只保留必要的验证）
      * @param product 商品信息
@@ -44,7 +69,10 @@ public class ProductService {
      */
     public Product addProduct(Product product) {
         validateProduct(product);
-        return productRepository.save(product);
+        product.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        Product savedProduct = productRepository.save(product);
+        productSearchIndex.index(savedProduct);
+        return savedProduct;
     }
 
     /**
@@ -54,7 +82,13 @@ public class ProductService {
      */
     public Product updateProduct(Product product) {
         validateProduct(product);
-        return productRepository.save(product);
+        // 热门商品先回写内存中的预占，再以店铺设置的库存为准重新加载
+        inventoryReservationService.flush(product.getProductId());
+        product.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        Product updatedProduct = productRepository.save(product);
+        inventoryReservationService.reload(updatedProduct.getProductId());
+        productSearchIndex.index(updatedProduct);
+        return updatedProduct;
     }
 
     /**
@@ -66,6 +100,72 @@ public class ProductService {
         return productRepository.findById(productId);
     }
 
+    /**
+     * 批量获取商品（一次IN查询，购物车等页面使用）
+     * @param productIds 商品ID列表
+     * @return 按请求顺序的结果，每项标明在售、已下架（含店铺已删除）或不存在
+     */
+    public List<ProductBatchItem> getProductsBatch(List<Integer> productIds) {
+        Collection<Integer> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+        Map<Integer, Object[]> found = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] row : productRepository.findWithShopStatus(ids)) {
+                found.put(((Product) row[0]).getProductId(), row);
+            }
+        }
+
+        List<ProductBatchItem> result = new ArrayList<>();
+        for (Integer productId : productIds) {
+            Object[] row = found.get(productId);
+            if (row == null) {
+                result.add(new ProductBatchItem(productId, ProductBatchItem.STATUS_MISSING, null));
+                continue;
+            }
+            Product product = (Product) row[0];
+            boolean onSale = Boolean.TRUE.equals(product.getIsOnSale()) && Boolean.FALSE.equals(row[1]);
+            result.add(new ProductBatchItem(productId,
+                    onSale ? ProductBatchItem.STATUS_ON_SALE : ProductBatchItem.STATUS_OFF_SALE, product));
+        }
+        return result;
+    }
+
+    /**
+     * 批量获取商品卡片统计（评分汇总和库存各一次IN查询）
+     * 热门商品的库存取内存中的可用库存
+     * @param productIds 商品ID列表
+     * @return 统计列表（按请求顺序，去重，不存在的商品不返回）
+     */
+    public List<ProductStats> getProductStats(Collection<Integer> productIds) {
+        Collection<Integer> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, ProductStats> found = new HashMap<>();
+        for (Object[] row : productRepository.findStockAndSaleStatus(ids)) {
+            ProductStats stats = new ProductStats();
+            stats.setProductId((Integer) row[0]);
+            Integer hotAvailable = inventoryReservationService.getAvailable(stats.getProductId());
+            stats.setStock(hotAvailable != null ? hotAvailable : (Integer) row[1]);
+            stats.setOnSale(Boolean.TRUE.equals(row[2]) && Boolean.FALSE.equals(row[3]));
+            found.put(stats.getProductId(), stats);
+        }
+        Map<Integer, ProductRating> ratings = reviewService.getRatingSummaries(found.keySet());
+
+        List<ProductStats> result = new ArrayList<>();
+        for (Integer productId : ids) {
+            ProductStats stats = found.get(productId);
+            if (stats != null) {
+                ProductRating rating = ratings.get(productId);
+                stats.setAverageRating(rating.getAverageRating());
+                stats.setReviewCount(rating.getReviewCount());
+                result.add(stats);
+            }
+        }
+        return result;
+    }
+
     /**
      * 获取指定店铺的所有商品
      * @param shopId 店铺ID
@@ -76,87 +176,161 @@ public class ProductService {
     }
 
     /**
-     * 过滤掉店铺已删除的商品
-     * @param products 商品列表
-     * @return 过滤后的商品列表
+     * 解析商品列表游标（上一页最后一个商品ID），为空或为搜索索引游标时表示第一页
+     * @param cursor 游标
+     * @return 商品ID上界（不包含）
+     * @throws IllegalArgumentException 如果游标格式不正确
+     */
+    private Integer parseProductCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty() || cursor.startsWith(SCORE_CURSOR_PREFIX)) {
+            return Integer.MAX_VALUE;
+        }
+        if (!cursor.startsWith(ID_CURSOR_PREFIX)) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        try {
+            return Integer.valueOf(cursor.substring(ID_CURSOR_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 将多查询一条的结果转换为分页结果
+     * @param rows 数据库返回的商品（最多 size + 1 条）
+     * @param size 每页数量
+     * @return 分页结果
+     */
+    private CursorPage<Product> toProductPage(List<Product> rows, int size) {
+        boolean hasMore = rows.size() > size;
+        List<Product> pageRows = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? ID_CURSOR_PREFIX + pageRows.get(pageRows.size() - 1).getProductId() : null;
+        return new CursorPage<>(pageRows, nextCursor, hasMore);
+    }
+
+    /**
+     * 通过搜索索引分页搜索，游标格式为"s:相关度_商品ID"（商品ID游标从第一页开始）
+     * @param keyword 关键词
+     * @param categoryId 分类ID（可选）
+     * @param cursor 游标
+     * @param size 每页数量
+     * @return 分页结果
      */
-    private List<Product> filterProductsByShopExists(List<Product> products) {
-        List<Product> result = new ArrayList<>();
-        for (Product product : products) {
-            if (shopRepository.existsById(product.getShopId())) {
-                result.add(product);
+    private CursorPage<Product> searchByIndex(String keyword, Integer categoryId, String cursor, int size) {
+        ProductSearchIndex.SearchHit after = null;
+        if (cursor != null && !cursor.isEmpty() && !cursor.startsWith(ID_CURSOR_PREFIX)) {
+            if (!cursor.startsWith(SCORE_CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            String[] parts = cursor.substring(SCORE_CURSOR_PREFIX.length()).split("_");
+            try {
+                after = new ProductSearchIndex.SearchHit(Integer.parseInt(parts[1]), Integer.parseInt(parts[0]));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("无效的分页游标");
             }
         }
-        return result;
+        // 多取一条判断是否还有下一页
+        List<ProductSearchIndex.SearchHit> hits = productSearchIndex.search(keyword, categoryId, after, size + 1);
+        boolean hasMore = hits.size() > size;
+        List<ProductSearchIndex.SearchHit> pageHits = hasMore ? hits.subList(0, size) : hits;
+        String nextCursor = null;
+        if (hasMore) {
+            ProductSearchIndex.SearchHit last = pageHits.get(pageHits.size() - 1);
+            nextCursor = SCORE_CURSOR_PREFIX + last.getScore() + "_" + last.getProductId();
+        }
+
+        // 按索引顺序加载商品（跳过已不存在、已下架或店铺已删除的商品）
+        List<Integer> productIds = new ArrayList<>();
+        for (ProductSearchIndex.SearchHit hit : pageHits) {
+            productIds.add(hit.getProductId());
+        }
+        Map<Integer, Product> productMap = new HashMap<>();
+        for (Product product : productRepository.findOnSaleByProductIdIn(productIds)) {
+            productMap.put(product.getProductId(), product);
+        }
+        List<Product> products = new ArrayList<>();
+        for (Integer productId : productIds) {
+            Product product = productMap.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return new CursorPage<>(products, nextCursor, hasMore);
     }
 
     /**
-     * 获取所有在售商品（过滤掉店铺已删除的商品）
-     * @return 在售商品列表
+     * 分页获取所有在售商品（过滤掉店铺已删除的商品）
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量
+     * @return 在售商品分页结果
      */
-    public List<Product> getAllOnSaleProducts() {
-        return filterProductsByShopExists(
-                productRepository.findByIsOnSaleTrueOrderByProductIdDesc()
-        );
+    public CursorPage<Product> getAllOnSaleProducts(String cursor, int size) {
+        return toProductPage(productRepository.findOnSalePage(
+                parseProductCursor(cursor), PageRequest.of(0, size + 1)), size);
     }
 
     /**
-     * 获取指定分类的在售商品
+     * 分页获取指定分类的在售商品
      * @param categoryId 分类ID
-     * @return 商品列表
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量
+     * @return 商品分页结果
      */
-    public List<Product> getOnSaleProductsByCategory(Integer categoryId) {
-        return filterProductsByShopExists(
-                productRepository.findByIsOnSaleTrueAndCategoryIdOrderByProductIdDesc(categoryId)
-        );
+    public CursorPage<Product> getOnSaleProductsByCategory(Integer categoryId, String cursor, int size) {
+        return toProductPage(productRepository.findOnSalePageByCategory(
+                categoryId, parseProductCursor(cursor), PageRequest.of(0, size + 1)), size);
     }
 
     /**
-     * 搜索在售商品（过滤掉店铺已删除的商品）
+     * 分页搜索在售商品（过滤掉店铺已删除的商品）
+     * 索引加载完成后走内存倒排索引并按相关度排序，否则回退到数据库模糊查询
      * @param keyword 搜索关键词
-     * @return 匹配的商品列表
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量
+     * @return 商品分页结果
      */
-    public List<Product> searchOnSaleProducts(String keyword) {
-        List<Product> products;
+    public CursorPage<Product> searchOnSaleProducts(String keyword, String cursor, int size) {
         if (keyword == null || keyword.trim().isEmpty()) {
-            products = productRepository.findByIsOnSaleTrueOrderByProductIdDesc();
-        } else {
-            products = productRepository.searchProducts(keyword);
+            return getAllOnSaleProducts(cursor, size);
         }
-        return filterProductsByShopExists(products);
+        if (productSearchIndex.isReady()) {
+            return searchByIndex(keyword, null, cursor, size);
+        }
+        return toProductPage(productRepository.searchProducts(
+                keyword, parseProductCursor(cursor), PageRequest.of(0, size + 1)), size);
     }
 
     /**
-     * 在指定分类下搜索在售商品
+     * 在指定分类下分页搜索在售商品
      * @param categoryId 分类ID
      * @param keyword 关键词
-     * @return 商品列表
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量
+     * @return 商品分页结果
      */
-    public List<Product> searchOnSaleProductsByCategory(Integer categoryId, String keyword) {
-        List<Product> products;
+    public CursorPage<Product> searchOnSaleProductsByCategory(Integer categoryId, String keyword, String cursor, int size) {
         if (keyword == null || keyword.trim().isEmpty()) {
-            products = productRepository.findByIsOnSaleTrueAndCategoryIdOrderByProductIdDesc(categoryId);
-        } else {
-            products = productRepository.searchProductsByCategory(categoryId, keyword);
+            return getOnSaleProductsByCategory(categoryId, cursor, size);
+        }
+        if (productSearchIndex.isReady()) {
+            return searchByIndex(keyword, categoryId, cursor, size);
         }
-        return filterProductsByShopExists(products);
+        return toProductPage(productRepository.searchProductsByCategory(
+                categoryId, keyword, parseProductCursor(cursor), PageRequest.of(0, size + 1)), size);
     }
 
     /**
-     * 扣减商品库存
+     * 扣减商品库存（热门商品走内存预占，其余为单条条件UPDATE，并发下不会超卖）
      * @param productId 商品ID
      * @param quantity 扣减数量
      * @return 扣减成功返回true，库存不足或商品不存在返回false
      */
     @Transactional
     public boolean deductStock(Integer productId, Integer quantity) {
-        Product product = productRepository.findById(productId).orElse(null);
-        if (product != null && product.getStock() >= quantity) {
-            product.setStock(product.getStock() - quantity);
-            productRepository.save(product);
-            return true;
+        if (quantity == null || quantity <= 0) {
+            return false;
         }
-        return false;
+        return inventoryReservationService.reserve(productId, quantity);
     }
 
     /**
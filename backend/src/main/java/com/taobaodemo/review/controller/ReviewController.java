@@ -1,6 +1,7 @@
 package com.taobaodemo.review.controller;
 
 import com.taobaodemo.auth.entity.User;
+import com.taobaodemo.review.entity.ProductRating;
 import com.taobaodemo.review.entity.Review;
 import com.taobaodemo.review.service.ReviewService;
 import com.taobaodemo.common.util.ResponseUtil;
@@ -22,26 +23,45 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     /**
-     * 获取指定商品的所有评价
+     * 分页获取指定商品的评价
      * @param productId 商品ID
-     * @return 评价列表
+     * @param sort 排序方式：latest（最新，默认）、rating（评分最高）
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量（默认20，最大100）
+     * @return 评价分页结果
      */
     @GetMapping("/product/{productId}")
-    public Object getReviewsByProductId(@PathVariable Integer productId) {
-        return ResponseUtil.success(reviewService.getReviewsByProductId(productId));
+    public Object getReviewsByProductId(@PathVariable Integer productId,
+                                        @RequestParam(required = false) String sort,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseUtil.success(reviewService.getReviewPage(productId, sort, cursor, pageSize(size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.error(e.getMessage());
+        }
+    }
+
+    private int pageSize(Integer size) {
+        return size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
     }
 
     /**
      * 获取商品的评价统计信息
      * @param productId 商品ID
-     * @return 平均评分和评价数量
+     * @return 平均评分、评价数量和1-5星分布
      */
     @GetMapping("/product/{productId}/stats")
     public Object getProductReviewStats(@PathVariable Integer productId) {
+        ProductRating rating = reviewService.getRatingSummary(productId);
         Map<String, Object> stats = new HashMap<>();
-        stats.put("averageRating", reviewService.getAverageRating(productId));
-        stats.put("reviewCount", reviewService.getReviewCount(productId));
+        stats.put("averageRating", rating.getAverageRating());
+        stats.put("reviewCount", rating.getReviewCount());
+        stats.put("histogram", rating.getHistogram());
         return ResponseUtil.success(stats);
     }
 
@@ -0,0 +1,52 @@
+package com.taobaodemo.review.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 商品评分汇总实体类
+ * 对应数据库product_rating表，评价增删改时在同一事务中更新，评分统计只需按主键读取一行
+ */
+@Entity
+@Table(name = "product_rating")
+@Data
+public class ProductRating {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount = 0L; // 评价数量
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L; // 评分总和
+
+    @Column(name = "star1", nullable = false)
+    private Long star1 = 0L; // 1星评价数
+
+    @Column(name = "star2", nullable = false)
+    private Long star2 = 0L; // 2星评价数
+
+    @Column(name = "star3", nullable = false)
+    private Long star3 = 0L; // 3星评价数
+
+    @Column(name = "star4", nullable = false)
+    private Long star4 = 0L; // 4星评价数
+
+    @Column(name = "star5", nullable = false)
+    private Long star5 = 0L; // 5星评价数
+
+    /**
+     * 平均评分（无评价返回0.0）
+     */
+    public double getAverageRating() {
+        return reviewCount != null && reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+    }
+
+    /**
+     * 各星级评价数，下标0对应1星
+     */
+    public long[] getHistogram() {
+        return new long[]{star1, star2, star3, star4, star5};
+    }
+}
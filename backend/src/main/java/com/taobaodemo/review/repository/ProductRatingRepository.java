@@ -0,0 +1,36 @@
+package com.taobaodemo.review.repository;
+
+import com.taobaodemo.review.entity.ProductRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRatingRepository extends JpaRepository<ProductRating, Integer> {
+    // 增加（delta=1）或移除（delta=-1）一条评分，不存在时插入
+    @Modifying
+    @Query(value = "INSERT INTO product_rating (product_id, review_count, rating_sum, star1, star2, star3, star4, star5) " +
+                   "VALUES (:productId, :delta, :delta * :rating, " +
+                   "CASE WHEN :rating = 1 THEN :delta ELSE 0 END, CASE WHEN :rating = 2 THEN :delta ELSE 0 END, " +
+                   "CASE WHEN :rating = 3 THEN :delta ELSE 0 END, CASE WHEN :rating = 4 THEN :delta ELSE 0 END, " +
+                   "CASE WHEN :rating = 5 THEN :delta ELSE 0 END) " +
+                   "ON DUPLICATE KEY UPDATE review_count = review_count + :delta, rating_sum = rating_sum + :delta * :rating, " +
+                   "star1 = star1 + CASE WHEN :rating = 1 THEN :delta ELSE 0 END, " +
+                   "star2 = star2 + CASE WHEN :rating = 2 THEN :delta ELSE 0 END, " +
+                   "star3 = star3 + CASE WHEN :rating = 3 THEN :delta ELSE 0 END, " +
+                   "star4 = star4 + CASE WHEN :rating = 4 THEN :delta ELSE 0 END, " +
+                   "star5 = star5 + CASE WHEN :rating = 5 THEN :delta ELSE 0 END", nativeQuery = true)
+    void applyRating(@Param("productId") Integer productId, @Param("rating") int rating, @Param("delta") int delta);
+
+    // 从评价表重建评分汇总
+    @Modifying
+    @Query(value = "INSERT INTO product_rating (product_id, review_count, rating_sum, star1, star2, star3, star4, star5) " +
+                   "SELECT product_id, COUNT(*), SUM(rating), " +
+                   "SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END) " +
+                   "FROM review GROUP BY product_id", nativeQuery = true)
+    void rebuildFromReviews();
+}
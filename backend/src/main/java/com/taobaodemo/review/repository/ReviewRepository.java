@@ -1,24 +1,45 @@
 package com.taobaodemo.review.repository;
 
 import com.taobaodemo.review.entity.Review;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Integer> {
-    List<Review> findByProductIdOrderByReviewDateDesc(Integer productId);
+    // 加写锁读取评价（修改、删除时使用，并发修改同一评价按顺序执行，评分汇总不会重复调整）
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.reviewId = :reviewId")
+    Optional<Review> findByIdForUpdate(@Param("reviewId") Integer reviewId);
 
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.productId = :productId AND r.customerId = :customerId")
-    long countByProductIdAndCustomerId(@Param("productId") Integer productId, @Param("customerId") Integer customerId);
+    // 按时间倒序的游标分页，同时取出评价人用户名（走idx_product_date索引）
+    @Query("SELECT r, u.username FROM Review r LEFT JOIN User u ON u.userId = r.customerId " +
+           "WHERE r.productId = :productId " +
+           "AND (r.reviewDate < :cursorDate OR (r.reviewDate = :cursorDate AND r.reviewId < :cursorId)) " +
+           "ORDER BY r.reviewDate DESC, r.reviewId DESC")
+    List<Object[]> findLatestPage(@Param("productId") Integer productId, @Param("cursorDate") Timestamp cursorDate,
+                                  @Param("cursorId") Integer cursorId, Pageable pageable);
 
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.productId = :productId")
-    Double getAverageRatingByProductId(@Param("productId") Integer productId);
+    // 按评分倒序（同评分按时间倒序）的游标分页，同时取出评价人用户名（走idx_product_rating索引）
+    @Query("SELECT r, u.username FROM Review r LEFT JOIN User u ON u.userId = r.customerId " +
+           "WHERE r.productId = :productId " +
+           "AND (r.rating < :cursorRating OR (r.rating = :cursorRating AND (r.reviewDate < :cursorDate " +
+           "OR (r.reviewDate = :cursorDate AND r.reviewId < :cursorId)))) " +
+           "ORDER BY r.rating DESC, r.reviewDate DESC, r.reviewId DESC")
+    List<Object[]> findTopRatedPage(@Param("productId") Integer productId, @Param("cursorRating") Integer cursorRating,
+                                    @Param("cursorDate") Timestamp cursorDate, @Param("cursorId") Integer cursorId,
+                                    Pageable pageable);
 
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.productId = :productId")
-    long countByProductId(@Param("productId") Integer productId);
+    @Query("SELECT COUNT(r) FROM Review r WHERE r.productId = :productId AND r.customerId = :customerId")
+    long countByProductIdAndCustomerId(@Param("productId") Integer productId, @Param("customerId") Integer customerId);
 
     @Query("SELECT COUNT(om) FROM OrderMaster om " +
            "WHERE om.productId = :productId AND om.customerId = :customerId " +
@@ -0,0 +1,101 @@
+package com.taobaodemo.review.service;
+
+import com.taobaodemo.review.entity.ProductRating;
+import com.taobaodemo.review.repository.ProductRatingRepository;
+import com.taobaodemo.review.repository.ReviewRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 商品评分汇总服务
+ * 每个商品一行汇总（评价数、评分总和、1-5星分布），评价增删改时在同一事务中以原子累加更新，
+ * 评分统计和列表页批量展示都只按主键读取，不再对评价表做聚合。
+ */
+@Service
+public class ProductRatingService {
+    @Autowired
+    private ProductRatingRepository productRatingRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 汇总表为空而评价表有数据时（首次部署或升级后）从评价表重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (productRatingRepository.count() == 0 && reviewRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从评价表重建评分汇总（全表扫描，仅用于初始化和修复数据）
+     */
+    public void rebuild() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            productRatingRepository.deleteAllInBatch();
+            productRatingRepository.rebuildFromReviews();
+        });
+    }
+
+    /**
+     * 计入一条评分（需要在写入评价的同一事务中调用）
+     * @param productId 商品ID
+     * @param rating 评分（1-5）
+     */
+    public void recordAdded(Integer productId, int rating) {
+        productRatingRepository.applyRating(productId, rating, 1);
+    }
+
+    /**
+     * 移除一条评分（需要在修改或删除评价的同一事务中调用）
+     * @param productId 商品ID
+     * @param rating 评分（1-5）
+     */
+    public void recordRemoved(Integer productId, int rating) {
+        productRatingRepository.applyRating(productId, rating, -1);
+    }
+
+    /**
+     * 获取商品评分汇总
+     * @param productId 商品ID
+     * @return 评分汇总（无评价时返回全0的汇总）
+     */
+    public ProductRating getSummary(Integer productId) {
+        return productRatingRepository.findById(productId).orElseGet(() -> empty(productId));
+    }
+
+    /**
+     * 批量获取商品评分汇总（一次IN查询）
+     * @param productIds 商品ID列表
+     * @return 商品ID -> 评分汇总（无评价的商品返回全0的汇总）
+     */
+    public Map<Integer, ProductRating> getSummaries(Collection<Integer> productIds) {
+        Map<Integer, ProductRating> result = new HashMap<>();
+        for (ProductRating rating : productRatingRepository.findAllById(productIds)) {
+            result.put(rating.getProductId(), rating);
+        }
+        for (Integer productId : productIds) {
+            result.computeIfAbsent(productId, this::empty);
+        }
+        return result;
+    }
+
+    private ProductRating empty(Integer productId) {
+        ProductRating rating = new ProductRating();
+        rating.setProductId(productId);
+        return rating;
+    }
+}
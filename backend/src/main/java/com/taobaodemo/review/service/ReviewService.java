@@ -1,27 +1,38 @@
 package com.taobaodemo.review.service;
 
+import com.taobaodemo.review.entity.ProductRating;
 import com.taobaodemo.review.entity.Review;
 import com.taobaodemo.review.repository.ReviewRepository;
-import com.taobaodemo.auth.entity.User;
-import com.taobaodemo.auth.repository.UserRepository;
+import com.taobaodemo.common.dto.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * 商品评价服务类
  * 处理商品评价相关的业务逻辑：添加、查询、更新、删除评价
+ * 评价写入与商品评分汇总的更新在同一事务中完成
  */
 @Service
 public class ReviewService {
+    public static final String SORT_LATEST = "latest";
+    public static final String SORT_RATING = "rating";
+
+    private static final Timestamp MAX_REVIEW_DATE = Timestamp.valueOf("9999-12-31 00:00:00");
+
     @Autowired
     private ReviewRepository reviewRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ProductRatingService productRatingService;
 
     /**
      * 添加商品评价
@@ -29,6 +40,7 @@ public class ReviewService {
      * @return 保存后的评价
      * @throws IllegalArgumentException 如果评分不在1-5之间
      */
+    @Transactional
     public Review addReview(Review review) {
         // 验证评分范围
         if (review.getRating() < 1 || review.getRating() > 5) {
@@ -36,23 +48,80 @@ public class ReviewService {
         }
 
         review.setReviewDate(new Timestamp(System.currentTimeMillis()));
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.save(review);
+        productRatingService.recordAdded(saved.getProductId(), saved.getRating());
+        return saved;
     }
 
     /**
-     * 获取指定商品的所有评价
+     * 分页获取指定商品的评价（评价人用户名随评价一次查出）
      * @param productId 商品ID
-     * @return 评价列表（按时间倒序）
+     * @param sort 排序方式：latest（按时间倒序，默认）、rating（按评分倒序，同评分按时间倒序）
+     * @param cursor 游标（上一页返回的nextCursor，第一页为空）
+     * @param size 每页数量
+     * @return 评价分页结果
+     * @throws IllegalArgumentException 如果排序方式或游标格式不正确
+     */
+    public CursorPage<Review> getReviewPage(Integer productId, String sort, String cursor, int size) {
+        boolean byRating;
+        if (sort == null || sort.isEmpty() || SORT_LATEST.equals(sort)) {
+            byRating = false;
+        } else if (SORT_RATING.equals(sort)) {
+            byRating = true;
+        } else {
+            throw new IllegalArgumentException("不支持的排序方式：" + sort);
+        }
+        ReviewCursor after = parseReviewCursor(cursor, byRating);
+        List<Object[]> rows = byRating
+                ? reviewRepository.findTopRatedPage(productId, after.rating, after.reviewDate, after.reviewId, PageRequest.of(0, size + 1))
+                : reviewRepository.findLatestPage(productId, after.reviewDate, after.reviewId, PageRequest.of(0, size + 1));
+
+        boolean hasMore = rows.size() > size;
+        List<Review> reviews = new ArrayList<>();
+        for (Object[] row : hasMore ? rows.subList(0, size) : rows) {
+            Review review = (Review) row[0];
+            review.setCustomerName((String) row[1]);
+            reviews.add(review);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Review last = reviews.get(reviews.size() - 1);
+            nextCursor = (byRating ? last.getRating() + "_" : "") + last.getReviewDate().getTime() + "_" + last.getReviewId();
+        }
+        return new CursorPage<>(reviews, nextCursor, hasMore);
+    }
+
+    /**
+     * 评价游标：上一页最后一条评价的评分（仅按评分排序时使用）、评价时间和评价ID
      */
-    public List<Review> getReviewsByProductId(Integer productId) {
-        List<Review> list = reviewRepository.findByProductIdOrderByReviewDateDesc(productId);
-        for (Review r : list) {
-            User u = userRepository.findById(r.getCustomerId()).orElse(null);
-            if (u != null) {
-                r.setCustomerName(u.getUsername());
+    private static class ReviewCursor {
+        final Integer rating;
+        final Timestamp reviewDate;
+        final Integer reviewId;
+
+        ReviewCursor(Integer rating, Timestamp reviewDate, Integer reviewId) {
+            this.rating = rating;
+            this.reviewDate = reviewDate;
+            this.reviewId = reviewId;
+        }
+    }
+
+    /**
+     * 解析游标，格式为"评价时间毫秒数_评价ID"，按评分排序时为"评分_评价时间毫秒数_评价ID"
+     */
+    private ReviewCursor parseReviewCursor(String cursor, boolean byRating) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new ReviewCursor(Integer.MAX_VALUE, MAX_REVIEW_DATE, Integer.MAX_VALUE);
+        }
+        String[] parts = cursor.split("_");
+        try {
+            if (byRating) {
+                return new ReviewCursor(Integer.valueOf(parts[0]), new Timestamp(Long.parseLong(parts[1])), Integer.valueOf(parts[2]));
             }
+            return new ReviewCursor(null, new Timestamp(Long.parseLong(parts[0])), Integer.valueOf(parts[1]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("无效的分页游标");
         }
-        return list;
     }
 
     /**
@@ -81,8 +150,7 @@ public class ReviewService {
      * @return 平均评分（无评价返回0.0）
      */
     public Double getAverageRating(Integer productId) {
-        Double avg = reviewRepository.getAverageRatingByProductId(productId);
-        return avg != null ? avg : 0.0;
+        return productRatingService.getSummary(productId).getAverageRating();
     }
 
     /**
@@ -91,7 +159,25 @@ public class ReviewService {
      * @return 评价数量
      */
     public long getReviewCount(Integer productId) {
-        return reviewRepository.countByProductId(productId);
+        return productRatingService.getSummary(productId).getReviewCount();
+    }
+
+    /**
+     * 获取商品的评分汇总（主键查询）
+     * @param productId 商品ID
+     * @return 评价数量、平均评分和1-5星分布
+     */
+    public ProductRating getRatingSummary(Integer productId) {
+        return productRatingService.getSummary(productId);
+    }
+
+    /**
+     * 批量获取商品的评分汇总（一次IN查询）
+     * @param productIds 商品ID列表
+     * @return 商品ID -> 评分汇总（无评价的商品返回全0的汇总）
+     */
+    public Map<Integer, ProductRating> getRatingSummaries(Collection<Integer> productIds) {
+        return productRatingService.getSummaries(productIds);
     }
 
     /**
@@ -112,8 +198,9 @@ public class ReviewService {
      * @return 更新后的评价
      * @throws IllegalArgumentException 如果评价不存在、无权限或评分不在1-5之间
      */
+    @Transactional
     public Review updateReview(Integer reviewId, Integer userId, Integer rating, String content) {
-        Review review = reviewRepository.findById(reviewId).orElse(null);
+        Review review = reviewRepository.findByIdForUpdate(reviewId).orElse(null);
         if (review == null) {
             throw new IllegalArgumentException("评价不存在");
         }
@@ -125,8 +212,10 @@ public class ReviewService {
         if (rating != null && (rating < 1 || rating > 5)) {
             throw new IllegalArgumentException("评分必须在1-5之间");
         }
-        // 更新评分和内容
-        if (rating != null) {
+        // 更新评分和内容，评分变化时同步调整汇总
+        if (rating != null && !rating.equals(review.getRating())) {
+            productRatingService.recordRemoved(review.getProductId(), review.getRating());
+            productRatingService.recordAdded(review.getProductId(), rating);
             review.setRating(rating);
         }
         if (content != null) {
@@ -142,8 +231,9 @@ public class ReviewService {
      * @param userId 用户ID（验证权限）
      * @throws IllegalArgumentException 如果评价不存在或无权限
      */
+    @Transactional
     public void deleteReview(Integer reviewId, Integer userId) {
-        Review review = reviewRepository.findById(reviewId).orElse(null);
+        Review review = reviewRepository.findByIdForUpdate(reviewId).orElse(null);
         if (review == null) {
             throw new IllegalArgumentException("评价不存在");
         }
@@ -152,6 +242,7 @@ public class ReviewService {
             throw new IllegalArgumentException("无权限删除该评价");
         }
         reviewRepository.delete(review);
+        productRatingService.recordRemoved(review.getProductId(), review.getRating());
     }
 }
 
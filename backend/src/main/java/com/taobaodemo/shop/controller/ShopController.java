@@ -1,10 +1,11 @@
 package com.taobaodemo.shop.controller;
 
 import com.taobaodemo.shop.entity.Shop;
-import com.taobaodemo.auth.entity.User;
 import com.taobaodemo.shop.service.ShopService;
+import com.taobaodemo.order.service.SalesRollupService;
 import com.taobaodemo.common.util.ResponseUtil;
 import com.taobaodemo.common.util.SessionUtil;
+import com.taobaodemo.common.web.CurrentShopId;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -19,18 +20,21 @@ public class ShopController {
     @Autowired
     private ShopService shopService;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
     /**
      * 获取当前登录店铺的信息（仅店铺用户）
+     * @param shopId 当前店铺ID
      * @param session HTTP会话
      * @return 店铺信息或错误提示
      */
     @GetMapping("/info")
-    public Object getShopInfo(HttpSession session) {
+    public Object getShopInfo(@CurrentShopId Integer shopId, HttpSession session) {
         if (!SessionUtil.isShopUser(session)) {
             return ResponseUtil.noPermission();
         }
-        User user = SessionUtil.getCurrentUser(session);
-        Shop shop = shopService.getShopByUserId(user.getUserId()).orElse(null);
+        Shop shop = shopId != null ? shopService.getShopById(shopId).orElse(null) : null;
         if (shop != null) {
             return ResponseUtil.success(shop);
         } else {
@@ -41,16 +45,16 @@ public class ShopController {
     /**
      * 更新店铺信息（仅店铺用户）
      * @param shop 更新的店铺信息
+     * @param shopId 当前店铺ID
      * @param session HTTP会话
      * @return 更新后的店铺信息
      */
     @PutMapping("/info")
-    public Object updateShopInfo(@RequestBody Shop shop, HttpSession session) {
+    public Object updateShopInfo(@RequestBody Shop shop, @CurrentShopId Integer shopId, HttpSession session) {
         if (!SessionUtil.isShopUser(session)) {
             return ResponseUtil.noPermission();
         }
-        User user = SessionUtil.getCurrentUser(session);
-        Shop existing = shopService.getShopByUserId(user.getUserId()).orElse(null);
+        Shop existing = shopId != null ? shopService.getShopById(shopId).orElse(null) : null;
         if (existing == null) {
             return ResponseUtil.error("店铺不存在");
         }
@@ -69,5 +73,35 @@ public class ShopController {
         Shop updated = shopService.updateShop(shop);
         return ResponseUtil.success(updated);
     }
-}
 
+    /**
+     * 获取本店销售报表（仅店铺用户，整店或店内单个商品）
+     * @param productId 商品ID（可选，为空时统计整店）
+     * @param startDate 开始日期 yyyy-MM-dd（可选，默认最近30天）
+     * @param endDate 结束日期 yyyy-MM-dd（可选，默认今天）
+     * @param period 分组周期：DAY, WEEK, MONTH（可选，默认DAY）
+     * @param shopId 当前店铺ID
+     * @param session HTTP会话
+     * @return 区间合计和分组明细
+     */
+    @GetMapping("/reports/sales")
+    public Object getSalesReport(@RequestParam(required = false) Integer productId,
+                                 @RequestParam(required = false) String startDate,
+                                 @RequestParam(required = false) String endDate,
+                                 @RequestParam(required = false) String period,
+                                 @CurrentShopId Integer shopId,
+                                 HttpSession session) {
+        if (!SessionUtil.isShopUser(session)) {
+            return ResponseUtil.noPermission();
+        }
+        if (shopId == null) {
+            return ResponseUtil.error("店铺不存在");
+        }
+        try {
+            return ResponseUtil.success(salesRollupService.getShopSalesReport(
+                    shopId, productId, startDate, endDate, period));
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.error(e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.taobaodemo.shop.repository;
 
 import com.taobaodemo.shop.entity.Shop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +13,9 @@ public interface ShopRepository extends JpaRepository<Shop, Integer> {
     Optional<Shop> findByUserIdAndIsDeletedFalse(Integer userId); // 查找未删除的店铺
     boolean existsByShopNameAndIsDeletedFalse(String shopName); // 检查未删除的店铺名是否存在
     List<Shop> findByIsDeletedFalse(); // 查找未删除的店铺
+
+    @Query("SELECT s.shopId FROM Shop s WHERE s.isDeleted = true")
+    List<Integer> findDeletedShopIds(); // 已删除店铺的ID
     long countByIsDeletedFalse(); // 统计未删除的店铺
 }
 
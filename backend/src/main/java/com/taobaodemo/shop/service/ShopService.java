@@ -4,19 +4,30 @@ import com.taobaodemo.shop.entity.Shop;
 import com.taobaodemo.shop.repository.ShopRepository;
 import com.taobaodemo.product.entity.Product;
 import com.taobaodemo.product.repository.ProductRepository;
+import com.taobaodemo.product.service.ProductSearchIndex;
 import com.taobaodemo.auth.entity.User;
 import com.taobaodemo.auth.repository.UserRepository;
 import com.taobaodemo.order.repository.OrderMasterRepository;
+import com.taobaodemo.order.service.SalesAggregateService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 店铺服务类
  * 处理店铺相关的业务逻辑：查询、更新、删除
+ * 已删除店铺的ID保存在内存中：本节点删除后立即加入，其他节点删除的由定时任务同步。
+ * 店铺删除不可恢复，集合只增不减。
  */
 @Service
 public class ShopService {
@@ -26,12 +37,38 @@ public class ShopService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private OrderMasterRepository orderMasterRepository;
 
+    @Autowired
+    private SalesAggregateService salesAggregateService;
+
+    private final Set<Integer> deletedShopIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 加载已删除店铺ID，并定时同步其他节点的删除
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${shop.deleted-refresh-interval-ms:10000}")
+    public void refreshDeletedShops() {
+        deletedShopIds.addAll(shopRepository.findDeletedShopIds());
+    }
+
+    /**
+     * 店铺是否已删除（内存判断，不查询数据库）
+     * @param shopId 店铺ID
+     * @return 已删除返回true
+     */
+    public boolean isShopDeleted(Integer shopId) {
+        return deletedShopIds.contains(shopId);
+    }
+
     /**
      * 根据ID获取店铺（只返回未删除的）
      * @param shopId 店铺ID
@@ -103,12 +140,15 @@ public class ShopService {
             List<Product> products = productRepository.findByShopIdOrderByProductIdDesc(shopId);
             for (Product product : products) {
                 product.setIsOnSale(false);
+                product.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
                 productRepository.save(product);
+                productSearchIndex.remove(product.getProductId());
             }
 
             // 3. 将订单的shopId设为null（使用原生SQL，保留订单历史数据）
             try {
                 orderMasterRepository.setShopIdToNullByShopId(shopId);
+                salesAggregateService.removeShop(shopId);
             } catch (Exception e) {
                 // 如果SQL执行失败，记录日志但不影响删除流程
                 e.printStackTrace();
@@ -122,6 +162,7 @@ public class ShopService {
             String newShopName = "deleted_" + originalShopName + "_" + System.currentTimeMillis();
             shop.setShopName(newShopName);
             shopRepository.save(shop);
+            markDeletedAfterCommit(shopId);
             
             // 6. 软删除关联的用户（店铺用户应该和店铺一起被删除）
             User user = userRepository.findById(shop.getUserId()).orElse(null);
@@ -141,5 +182,15 @@ public class ShopService {
             return "删除失败: " + e.getMessage();
         }
     }
+
+    // 事务提交后使登录用户中缓存的店铺ID立即失效
+    private void markDeletedAfterCommit(Integer shopId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deletedShopIds.add(shopId);
+            }
+        });
+    }
 }
 
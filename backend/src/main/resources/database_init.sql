@@ -53,10 +53,22 @@ CREATE TABLE product (
     image_url VARCHAR(255) COMMENT '商品图片URL',
     is_on_sale BOOLEAN NOT NULL DEFAULT TRUE COMMENT '是否在售',
     category_id INT NOT NULL COMMENT '分类ID',
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '商品信息最后修改时间（库存变化不更新，用于搜索索引增量刷新）',
     INDEX idx_shop_id (shop_id),
     INDEX idx_category_id (category_id),
-    INDEX idx_is_on_sale (is_on_sale)
+    INDEX idx_is_on_sale (is_on_sale),
+    INDEX idx_updated_at (updated_at, product_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品表';
+-- 已有数据库升级时执行：
+-- ALTER TABLE product ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+--     ADD INDEX idx_updated_at (updated_at, product_id);
+
+-- 2.4.1 热门商品库存回写水位线 (stock_watermark)
+-- 与内存库存回写在同一事务中推进，启动时补扣水位线之后未回写的订单
+CREATE TABLE stock_watermark (
+    product_id INT PRIMARY KEY COMMENT '商品ID',
+    flushed_order_id INT NOT NULL DEFAULT 0 COMMENT '已回写到product.stock的最大订单ID'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='热门商品库存回写水位线表';
 
 -- 2.5 地址表 (address)
 CREATE TABLE address (
@@ -85,12 +97,75 @@ CREATE TABLE ordermaster (
     product_id INT NOT NULL COMMENT '商品ID',
     quantity INT NOT NULL COMMENT '购买数量',
     price_at_purchase DECIMAL(10, 2) NOT NULL COMMENT '购买时的商品价格（快照）',
-    INDEX idx_customer_id (customer_id),
-    INDEX idx_shop_id (shop_id),
+    -- 订单列表按 (order_date, order_id) 游标分页，以下复合索引覆盖归属 + 状态筛选 + 排序
+    INDEX idx_customer_date (customer_id, order_date, order_id),
+    INDEX idx_customer_status_date (customer_id, status, order_date, order_id),
+    INDEX idx_shop_date (shop_id, order_date, order_id),
+    INDEX idx_shop_status_date (shop_id, status, order_date, order_id),
     INDEX idx_status (status),
     INDEX idx_order_date (order_date),
     INDEX idx_product_id (product_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表（合并订单项）';
+-- 已有数据库升级时执行：
+-- ALTER TABLE ordermaster DROP INDEX idx_customer_id, DROP INDEX idx_shop_id,
+--     ADD INDEX idx_customer_date (customer_id, order_date, order_id),
+--     ADD INDEX idx_customer_status_date (customer_id, status, order_date, order_id),
+--     ADD INDEX idx_shop_date (shop_id, order_date, order_id),
+--     ADD INDEX idx_shop_status_date (shop_id, status, order_date, order_id);
+
+-- 2.6.1 ID号段表 (id_generator) - 订单ID按号段预分配，支持批量插入订单
+-- next_val 需要至少比当前最大订单ID大50（号段大小），已有数据库升级时执行：
+-- INSERT INTO id_generator (gen_name, next_val) SELECT 'ordermaster', COALESCE(MAX(order_id), 0) + 50 FROM ordermaster;
+CREATE TABLE id_generator (
+    gen_name VARCHAR(50) PRIMARY KEY COMMENT '生成器名称',
+    next_val BIGINT NOT NULL COMMENT '号段上界'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='ID号段表';
+
+INSERT INTO id_generator (gen_name, next_val) VALUES ('ordermaster', 50);
+
+-- 2.6.2 商品销量汇总表 (product_sales) - 订单完成时累加，热销商品排行只读前N行
+-- 表为空时应用启动会自动从已完成订单重建
+CREATE TABLE product_sales (
+    product_id INT PRIMARY KEY COMMENT '商品ID',
+    units_sold BIGINT NOT NULL DEFAULT 0 COMMENT '已完成订单的累计销量',
+    INDEX idx_units_sold (units_sold)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品销量汇总表';
+
+-- 2.6.3 店铺成交汇总表 (shop_sales) - 订单完成时累加，店铺删除时移除
+CREATE TABLE shop_sales (
+    shop_id INT PRIMARY KEY COMMENT '店铺ID',
+    completed_orders BIGINT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    INDEX idx_completed_orders (completed_orders)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='店铺成交汇总表';
+
+-- 2.6.4 销售时间桶表 (sales_rollup) - 按商品/店铺/分类累计的小时、天、月销售数据
+-- 订单完成时写入小时桶，定时任务把较早的小时桶压缩为天桶、天桶压缩为月桶
+CREATE TABLE sales_rollup (
+    rollup_id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '时间桶ID',
+    granularity VARCHAR(10) NOT NULL COMMENT '粒度：HOUR, DAY, MONTH',
+    dimension VARCHAR(20) NOT NULL COMMENT '维度：PRODUCT, SHOP, CATEGORY',
+    dimension_id INT NOT NULL COMMENT '商品ID/店铺ID/分类ID',
+    bucket_start DATETIME NOT NULL COMMENT '时间桶起始时间',
+    units BIGINT NOT NULL DEFAULT 0 COMMENT '销量',
+    revenue DECIMAL(14, 2) NOT NULL DEFAULT 0 COMMENT '销售额',
+    order_count BIGINT NOT NULL DEFAULT 0 COMMENT '订单数',
+    UNIQUE KEY uk_rollup_bucket (dimension, dimension_id, bucket_start, granularity),
+    INDEX idx_granularity_bucket (granularity, bucket_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='销售时间桶表';
+
+-- 2.6.5 秒杀排队凭证表 (flash_sale_ticket) - 下单请求入队时写入，处理结果与订单在同一事务中更新
+-- 处理完成的凭证保留10分钟后由定时任务删除
+CREATE TABLE flash_sale_ticket (
+    ticket_id VARCHAR(36) PRIMARY KEY COMMENT '凭证ID',
+    customer_id INT NOT NULL COMMENT '顾客ID',
+    product_id INT NOT NULL COMMENT '秒杀商品ID',
+    quantity INT NOT NULL COMMENT '购买数量',
+    status VARCHAR(10) NOT NULL COMMENT '状态：QUEUED, SUCCESS, FAILED',
+    order_id INT COMMENT '下单成功后的订单ID',
+    message VARCHAR(100) COMMENT '失败原因',
+    updated_at TIMESTAMP NOT NULL COMMENT '最后更新时间',
+    INDEX idx_status_updated (status, updated_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='秒杀排队凭证表';
 
 -- 2.7 评价表 (review)
 CREATE TABLE review (
@@ -101,10 +176,29 @@ CREATE TABLE review (
     rating INT NOT NULL COMMENT '评分（1-5）',
     content TEXT COMMENT '评价内容',
     review_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '评价时间',
-    INDEX idx_product_id (product_id),
+    -- 评价列表按 (review_date, review_id) 或 (rating, review_date, review_id) 游标分页
+    INDEX idx_product_date (product_id, review_date, review_id),
+    INDEX idx_product_rating (product_id, rating, review_date, review_id),
     INDEX idx_customer_id (customer_id),
     INDEX idx_order_id (order_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品评价表';
+-- 已有数据库升级时执行：
+-- ALTER TABLE review DROP INDEX idx_product_id,
+--     ADD INDEX idx_product_date (product_id, review_date, review_id),
+--     ADD INDEX idx_product_rating (product_id, rating, review_date, review_id);
+
+-- 2.7.1 商品评分汇总表 (product_rating) - 评价增删改时在同一事务中更新，评分统计只需主键查询
+-- 表为空时应用启动会自动从评价表重建
+CREATE TABLE product_rating (
+    product_id INT PRIMARY KEY COMMENT '商品ID',
+    review_count BIGINT NOT NULL DEFAULT 0 COMMENT '评价数量',
+    rating_sum BIGINT NOT NULL DEFAULT 0 COMMENT '评分总和',
+    star1 BIGINT NOT NULL DEFAULT 0 COMMENT '1星评价数',
+    star2 BIGINT NOT NULL DEFAULT 0 COMMENT '2星评价数',
+    star3 BIGINT NOT NULL DEFAULT 0 COMMENT '3星评价数',
+    star4 BIGINT NOT NULL DEFAULT 0 COMMENT '4星评价数',
+    star5 BIGINT NOT NULL DEFAULT 0 COMMENT '5星评价数'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='商品评分汇总表';
 
 -- ============================================
 -- 3. 插入初始测试数据
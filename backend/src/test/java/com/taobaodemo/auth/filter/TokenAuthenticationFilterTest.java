@@ -0,0 +1,117 @@
+package com.taobaodemo.auth.filter;
+
+import com.taobaodemo.auth.entity.User;
+import com.taobaodemo.auth.service.AuthTokenService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 令牌认证过滤器测试
+ */
+class TokenAuthenticationFilterTest {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private static AuthTokenService tokenService(String mode) {
+        AuthTokenService service = new AuthTokenService();
+        ReflectionTestUtils.setField(service, "mode", mode);
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        ReflectionTestUtils.setField(service, "ttlMinutes", 120L);
+        service.init();
+        return service;
+    }
+
+    private static TokenAuthenticationFilter filter(AuthTokenService service) {
+        TokenAuthenticationFilter filter = new TokenAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "authTokenService", service);
+        return filter;
+    }
+
+    private static String issue(AuthTokenService service, Integer shopId) {
+        User user = new User();
+        user.setUserId(7);
+        user.setUserType(2);
+        user.setUsername("shop1");
+        user.setShopId(shopId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.issue(user, response);
+        return response.getHeader(HttpHeaders.AUTHORIZATION).substring(AuthTokenService.BEARER_PREFIX.length());
+    }
+
+    // 执行过滤器，返回传给后续处理的请求
+    private static HttpServletRequest doFilter(TokenAuthenticationFilter filter, MockHttpServletRequest request) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return (HttpServletRequest) chain.getRequest();
+    }
+
+    @Test
+    void bearerTokenPopulatesCurrentUser() throws Exception {
+        AuthTokenService service = tokenService(AuthTokenService.MODE_TOKEN);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, AuthTokenService.BEARER_PREFIX + issue(service, 3));
+
+        HttpServletRequest filtered = doFilter(filter(service), request);
+
+        HttpSession session = filtered.getSession(false);
+        assertInstanceOf(TokenSession.class, session);
+        User user = (User) session.getAttribute("currentUser");
+        assertNotNull(user);
+        assertEquals(7, user.getUserId());
+        assertEquals(2, user.getUserType());
+        assertEquals("shop1", user.getUsername());
+        assertEquals(3, user.getShopId());
+        // 不创建容器会话
+        assertNull(request.getSession(false));
+    }
+
+    @Test
+    void cookieTokenWithoutShop() throws Exception {
+        AuthTokenService service = tokenService(AuthTokenService.MODE_TOKEN);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(AuthTokenService.COOKIE_NAME, issue(service, null)));
+
+        User user = (User) doFilter(filter(service), request).getSession().getAttribute("currentUser");
+
+        assertNotNull(user);
+        assertNull(user.getShopId());
+    }
+
+    @Test
+    void invalidTokenLeavesRequestAnonymous() throws Exception {
+        AuthTokenService service = tokenService(AuthTokenService.MODE_TOKEN);
+        String token = issue(service, 3);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, AuthTokenService.BEARER_PREFIX + token.substring(0, token.length() - 2));
+
+        HttpServletRequest filtered = doFilter(filter(service), request);
+
+        assertNull(filtered.getSession().getAttribute("currentUser"));
+        assertNull(request.getSession(false));
+    }
+
+    @Test
+    void missingTokenLeavesRequestAnonymous() throws Exception {
+        AuthTokenService service = tokenService(AuthTokenService.MODE_TOKEN);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertNull(doFilter(filter(service), request).getSession(true).getAttribute("currentUser"));
+        assertNull(request.getSession(false));
+    }
+
+    @Test
+    void sessionModeSkipsFilter() throws Exception {
+        AuthTokenService service = tokenService("session");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertSame(request, doFilter(filter(service), request));
+    }
+}
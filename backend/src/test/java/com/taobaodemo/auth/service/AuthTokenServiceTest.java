@@ -0,0 +1,174 @@
+package com.taobaodemo.auth.service;
+
+import com.taobaodemo.auth.dto.AuthToken;
+import com.taobaodemo.auth.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 登录令牌签发与校验测试
+ */
+class AuthTokenServiceTest {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private AuthTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService(120);
+    }
+
+    private static AuthTokenService newService(long ttlMinutes) {
+        AuthTokenService service = new AuthTokenService();
+        ReflectionTestUtils.setField(service, "mode", AuthTokenService.MODE_TOKEN);
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        ReflectionTestUtils.setField(service, "ttlMinutes", ttlMinutes);
+        service.init();
+        return service;
+    }
+
+    private static User user(Integer shopId) {
+        User user = new User();
+        user.setUserId(7);
+        user.setUserType(2);
+        user.setUsername("shop|一号");
+        user.setShopId(shopId);
+        return user;
+    }
+
+    // 通过签发接口取得令牌（签名方法为私有）
+    private static String issue(AuthTokenService service, User user) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.issue(user, response);
+        String header = response.getHeader(HttpHeaders.AUTHORIZATION);
+        assertNotNull(header);
+        assertTrue(header.startsWith(AuthTokenService.BEARER_PREFIX));
+        return header.substring(AuthTokenService.BEARER_PREFIX.length());
+    }
+
+    // 用测试密钥直接签名任意内容，构造格式错误但签名正确的令牌
+    private static String signPayload(String payload) throws Exception {
+        String encoded = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return encoded + "." + ENCODER.encodeToString(mac.doFinal(encoded.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @Test
+    void roundTrip() {
+        AuthToken token = service.verify(issue(service, user(3)));
+
+        assertNotNull(token);
+        assertEquals(7, token.getUserId());
+        assertEquals(2, token.getUserType());
+        assertEquals(3, token.getShopId());
+        assertEquals("shop|一号", token.getUsername());
+        assertTrue(token.getExpiresAt() > now());
+    }
+
+    @Test
+    void roundTripWithoutShop() {
+        AuthToken token = service.verify(issue(service, user(null)));
+
+        assertNotNull(token);
+        assertNull(token.getShopId());
+    }
+
+    @Test
+    void issueWritesHttpOnlyCookie() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.issue(user(3), response);
+
+        String cookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(cookie);
+        assertTrue(cookie.startsWith(AuthTokenService.COOKIE_NAME + "="));
+        assertTrue(cookie.contains("HttpOnly"));
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        String token = issue(service, user(3));
+        int dot = token.indexOf('.');
+        byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        signature[0] ^= 1;
+
+        assertNull(service.verify(token.substring(0, dot + 1) + ENCODER.encodeToString(signature)));
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String token = issue(service, user(3));
+        int dot = token.indexOf('.');
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+        String forged = ENCODER.encodeToString(payload.replaceFirst("^7\\|", "1|").getBytes(StandardCharsets.UTF_8));
+
+        assertNull(service.verify(forged + token.substring(dot)));
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherSecret() {
+        AuthTokenService other = new AuthTokenService();
+        ReflectionTestUtils.setField(other, "mode", AuthTokenService.MODE_TOKEN);
+        ReflectionTestUtils.setField(other, "secret", "fedcba9876543210fedcba9876543210");
+        ReflectionTestUtils.setField(other, "ttlMinutes", 120L);
+        other.init();
+
+        assertNull(service.verify(issue(other, user(3))));
+    }
+
+    @Test
+    void rejectsExpiredToken() throws Exception {
+        assertNull(newService(-1).verify(issue(newService(-1), user(3))));
+        assertNull(service.verify(signPayload("7|2|3|" + (now() - 1) + "|shop")));
+        assertNotNull(service.verify(signPayload("7|2|3|" + (now() + 60) + "|shop")));
+    }
+
+    @Test
+    void rejectsMalformedTokens() throws Exception {
+        assertNull(service.verify(null));
+        assertNull(service.verify(""));
+        assertNull(service.verify("no-dot"));
+        assertNull(service.verify(".signature"));
+        assertNull(service.verify("abc.!!!"));
+        assertNull(service.verify("!!!." + issue(service, user(3)).split("\\.")[1]));
+        assertNull(service.verify(signPayload("7|2|3")));
+        assertNull(service.verify(signPayload("7|2|3|" + (now() + 60))));
+        assertNull(service.verify(signPayload("x|2|3|" + (now() + 60) + "|shop")));
+        assertNull(service.verify(signPayload("7|2|3|never|shop")));
+    }
+
+    @Test
+    void verifyReturnsNullWhenDisabled() {
+        String token = issue(service, user(3));
+        AuthTokenService disabled = new AuthTokenService();
+        ReflectionTestUtils.setField(disabled, "mode", "session");
+        disabled.init();
+
+        assertFalse(disabled.isEnabled());
+        assertNull(disabled.verify(token));
+    }
+
+    @Test
+    void rejectsShortSecret() {
+        AuthTokenService weak = new AuthTokenService();
+        ReflectionTestUtils.setField(weak, "mode", AuthTokenService.MODE_TOKEN);
+        ReflectionTestUtils.setField(weak, "secret", "short");
+
+        assertThrows(IllegalStateException.class, weak::init);
+    }
+}
@@ -0,0 +1,130 @@
+package com.taobaodemo.common.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Count-Min Sketch 测试（规格与订单统计相同：深度4、宽度2048）
+ */
+class CountMinSketchTest {
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 2048;
+
+    // 偏斜的订单流：少数商品占大部分销量
+    private static Map<Long, Long> skewedStream(CountMinSketch sketch, long seed, int events) {
+        Random random = new Random(seed);
+        Map<Long, Long> actual = new HashMap<>();
+        for (int i = 0; i < events; i++) {
+            long item = (long) Math.floor(Math.pow(10_000, random.nextDouble()));
+            long count = 1 + random.nextInt(3);
+            sketch.add(item, count);
+            actual.merge(item, count, Long::sum);
+        }
+        return actual;
+    }
+
+    @Test
+    void estimateWithinDocumentedBound() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        Map<Long, Long> actual = skewedStream(sketch, 42, 200_000);
+
+        // 误差不超过 (e / w) * 总计数（约0.13%）的概率至少为 1 - e^(-d)（约98%）
+        double bound = Math.E / WIDTH * sketch.getTotal();
+        int withinBound = 0;
+        for (Map.Entry<Long, Long> entry : actual.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), "估计值不能偏小");
+            if (estimate - entry.getValue() <= bound) {
+                withinBound++;
+            }
+        }
+        assertTrue(withinBound >= (1 - Math.exp(-DEPTH)) * actual.size(),
+                "误差在界内的比例: " + (double) withinBound / actual.size());
+    }
+
+    @Test
+    void heavyHittersAreNearlyExact() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        Map<Long, Long> actual = skewedStream(sketch, 7, 200_000);
+
+        long top = actual.get(1L);
+        assertTrue(sketch.estimate(1L) - top <= Math.E / WIDTH * sketch.getTotal());
+        assertEquals(0, new CountMinSketch(DEPTH, WIDTH).estimate(1L));
+    }
+
+    @Test
+    void mergeMatchesSingleSketch() {
+        CountMinSketch whole = new CountMinSketch(DEPTH, WIDTH);
+        CountMinSketch first = new CountMinSketch(DEPTH, WIDTH);
+        CountMinSketch second = new CountMinSketch(DEPTH, WIDTH);
+        Random random = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            long item = random.nextInt(5_000);
+            whole.add(item, 1);
+            (i % 2 == 0 ? first : second).add(item, 1);
+        }
+
+        first.merge(second);
+
+        assertEquals(whole.getTotal(), first.getTotal());
+        for (long item = 0; item < 5_000; item++) {
+            assertEquals(whole.estimate(item), first.estimate(item));
+        }
+    }
+
+    @Test
+    void mergeRejectsDifferentShape() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new CountMinSketch(DEPTH, WIDTH / 2)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new CountMinSketch(DEPTH + 1, WIDTH)));
+    }
+
+    @Test
+    void clearResetsCounts() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        skewedStream(sketch, 3, 10_000);
+
+        sketch.clear();
+
+        assertEquals(0, sketch.getTotal());
+        for (long item = 1; item < 10_000; item++) {
+            assertEquals(0, sketch.estimate(item));
+        }
+    }
+
+    @Test
+    void writeToAndReadFromRoundTrip() throws IOException {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        Map<Long, Long> actual = skewedStream(sketch, 11, 20_000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            sketch.writeTo(out);
+        }
+        CountMinSketch restored = CountMinSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(DEPTH, restored.getDepth());
+        assertEquals(WIDTH, restored.getWidth());
+        assertEquals(sketch.getTotal(), restored.getTotal());
+        for (Long item : actual.keySet()) {
+            assertEquals(sketch.estimate(item), restored.estimate(item));
+        }
+    }
+
+    @Test
+    void rejectsInvalidShape() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, WIDTH));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(DEPTH, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package com.taobaodemo.common.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HyperLogLog 测试（精度与订单统计相同：p = 12）
+ */
+class HyperLogLogTest {
+    private static final int PRECISION = 12;
+    // 相对标准误差 1.04 / sqrt(2^12)，约1.6%
+    private static final double STANDARD_ERROR = 1.04 / Math.sqrt(1 << PRECISION);
+
+    private static HyperLogLog withItems(long from, long to) {
+        HyperLogLog hll = new HyperLogLog(PRECISION);
+        for (long item = from; item < to; item++) {
+            hll.add(item);
+        }
+        return hll;
+    }
+
+    private static void assertWithinError(long expected, long estimate) {
+        double error = Math.abs(estimate - expected) / (double) expected;
+        // 3倍标准误差
+        assertTrue(error <= 3 * STANDARD_ERROR, "基数" + expected + "的估计值" + estimate + "，相对误差" + error);
+    }
+
+    @Test
+    void estimateWithinDocumentedError() {
+        for (long cardinality : new long[]{100, 1_000, 10_000, 100_000, 1_000_000}) {
+            assertWithinError(cardinality, withItems(0, cardinality).estimate());
+        }
+    }
+
+    @Test
+    void averageErrorMatchesStandardError() {
+        // 多组不相交的随机ID，误差的均方根应接近理论值
+        Random random = new Random(42);
+        int trials = 50;
+        int cardinality = 20_000;
+        double squaredErrors = 0;
+        for (int t = 0; t < trials; t++) {
+            HyperLogLog hll = new HyperLogLog(PRECISION);
+            long base = random.nextLong();
+            for (int i = 0; i < cardinality; i++) {
+                hll.add(base + i * 7919L);
+            }
+            double error = (hll.estimate() - cardinality) / (double) cardinality;
+            squaredErrors += error * error;
+        }
+        double rmse = Math.sqrt(squaredErrors / trials);
+        assertTrue(rmse <= 1.5 * STANDARD_ERROR, "均方根误差" + rmse);
+    }
+
+    @Test
+    void duplicatesDoNotChangeEstimate() {
+        HyperLogLog hll = withItems(0, 5_000);
+        long estimate = hll.estimate();
+        for (long item = 0; item < 5_000; item++) {
+            hll.add(item);
+        }
+
+        assertEquals(estimate, hll.estimate());
+        assertEquals(0, new HyperLogLog(PRECISION).estimate());
+    }
+
+    @Test
+    void mergeEstimatesUnion() {
+        HyperLogLog first = withItems(0, 60_000);
+        HyperLogLog second = withItems(40_000, 100_000);
+
+        first.merge(second);
+
+        assertEquals(withItems(0, 100_000).estimate(), first.estimate());
+        assertWithinError(100_000, first.estimate());
+    }
+
+    @Test
+    void mergeRejectsDifferentPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(PRECISION).merge(new HyperLogLog(PRECISION - 1)));
+    }
+
+    @Test
+    void writeToAndReadFromRoundTrip() throws IOException {
+        HyperLogLog hll = withItems(0, 30_000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            hll.writeTo(out);
+        }
+        HyperLogLog restored = HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(PRECISION, restored.getPrecision());
+        assertEquals(hll.estimate(), restored.estimate());
+        restored.add(30_000);
+        hll.add(30_000);
+        assertEquals(hll.estimate(), restored.estimate());
+    }
+
+    @Test
+    void rejectsInvalidPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+    }
+}
@@ -4,12 +4,21 @@ export const createOrder = (cartItems) => {
   return request.post('/orders', cartItems)
 }
 
-export const getCustomerOrders = () => {
-  return request.get('/orders/customer')
+export const getFlashSaleTicket = (ticketId) => {
+  return request.get(`/orders/flash-sale/tickets/${ticketId}`)
 }
 
-export const getShopOrders = () => {
-  return request.get('/orders/shop')
+// params: { status, startDate, endDate, cursor, size }
+export const getCustomerOrders = (params = {}) => {
+  return request.get('/orders/customer', { params })
+}
+
+export const getShopOrders = (params = {}) => {
+  return request.get('/orders/shop', { params })
+}
+
+export const getShopOrderStats = () => {
+  return request.get('/orders/shop/stats')
 }
 
 export const getOrderById = (id) => {
@@ -8,6 +8,16 @@ export const getProductById = (id) => {
   return request.get(`/products/${id}`)
 }
 
+// 批量获取商品，按请求顺序返回，每项status为 ON_SALE / OFF_SALE / MISSING
+export const getProductsBatch = (ids) => {
+  return request.get('/products/batch', { params: { ids: ids.join(',') } })
+}
+
+// 批量获取商品卡片统计（评分、评价数、库存、在售状态）
+export const getProductStats = (ids) => {
+  return request.get('/products/stats', { params: { ids: ids.join(',') } })
+}
+
 export const getProductsByShopId = (shopId) => {
   return request.get(`/products/shop/${shopId}`)
 }
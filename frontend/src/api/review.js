@@ -1,7 +1,8 @@
 import request from './request'
 
-export const getReviewsByProductId = (productId) => {
-  return request.get(`/reviews/product/${productId}`)
+// params: { sort: 'latest' | 'rating', cursor, size }
+export const getReviewsByProductId = (productId, params = {}) => {
+  return request.get(`/reviews/product/${productId}`, { params })
 }
 
 export const getProductReviewStats = (productId) => {
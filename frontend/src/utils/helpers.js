@@ -2,12 +2,16 @@
  * 工具函数集合
  */
 
+// 按内容哈希保存的图片：.../<64位哈希>.<扩展名>，变体为 <哈希>_thumb、<哈希>_medium
+const HASHED_IMAGE = /^(.*\/[0-9a-f]{64})(\.[a-z]+)$/
+
 /**
  * 获取商品图片URL
  * @param {string} url - 图片URL
+ * @param {string} [variant] - 尺寸变体：thumb（缩略图，商品卡片）、medium（中图，商品详情），不传为原图
  * @returns {string} 完整的图片URL
  */
-export const getProductImage = (url) => {
+export const getProductImage = (url, variant) => {
   if (!url) return 'data:image/svg+xml,%3Csvg xmlns="http://www.w3.org/2000/svg" width="200" height="200"%3E%3Crect fill="%23ddd" width="200" height="200"/%3E%3Ctext fill="%23999" font-family="sans-serif" font-size="14" x="50%25" y="50%25" text-anchor="middle" dy=".3em"%3E暂无图片%3C/text%3E%3C/svg%3E'
   
   // 如果包含localhost:8080，替换为相对路径
@@ -19,6 +23,14 @@ export const getProductImage = (url) => {
   if (url.startsWith('http://') || url.startsWith('https://')) {
     return url
   }
+
+  // 按命名约定取变体，旧图片没有变体时使用原图
+  if (variant) {
+    const match = url.match(HASHED_IMAGE)
+    if (match) {
+      url = `${match[1]}_${variant}${match[2]}`
+    }
+  }
   
   // 如果是相对路径，直接返回（通过Nginx代理访问）
   if (url.startsWith('/')) {
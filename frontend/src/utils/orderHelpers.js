@@ -2,6 +2,11 @@
  * 订单相关工具函数
  */
 
+/**
+ * 订单状态列表（用于筛选）
+ */
+export const ORDER_STATUSES = ['待支付', '待发货', '待收货', '已完成', '已取消']
+
 /**
  * 获取订单状态的标签类型（用于Element Plus的Tag组件）
  */
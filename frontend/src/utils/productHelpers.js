@@ -0,0 +1,35 @@
+import { ref } from 'vue'
+import { getProductStats } from '../api/product'
+
+/**
+ * 商品卡片统计复用工具
+ * 每加载一页商品只发一次批量请求，获取评分、评价数和库存
+ * 用于 Home.vue 和 Category.vue
+ */
+export function useProductStats() {
+  const productStats = ref({})
+
+  const loadProductStats = async (products) => {
+    const ids = products.map(p => p.productId)
+    if (ids.length === 0) {
+      return
+    }
+    try {
+      const response = await getProductStats(ids)
+      if (response.success && response.data) {
+        const merged = { ...productStats.value }
+        for (const stats of response.data) {
+          merged[stats.productId] = stats
+        }
+        productStats.value = merged
+      }
+    } catch (error) {
+      // 统计加载失败不影响商品列表
+    }
+  }
+
+  return {
+    productStats,
+    loadProductStats
+  }
+}